@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text.benchmark;
+
+import org.freedomdave.utils.text.TextField;
+import org.freedomdave.utils.text.TextFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for fitting a single value into a fixed width field.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextFormatterBenchmark {
+    @Param({"8", "32", "128"})
+    private int valueLength;
+
+    // fields narrower than the value truncate it with ellipsis
+    @Param({"16", "64"})
+    private int width;
+
+    @Param({"LEFT", "RIGHT", "CENTER"})
+    private TextFormatter.Alignment alignment;
+
+    private String value;
+    // the value cut to the field width, as align() expects
+    private String fittingValue;
+    private String wideValue;
+    private TextField field;
+    private StringBuilder buffer;
+
+    @Setup
+    public void setup() {
+        value = TextTableGeneratorBenchmark.BenchmarkData.value(new Random(42), valueLength);
+        StringBuilder wide = new StringBuilder(valueLength);
+        for (int i = 0; i < valueLength; i++) {
+            // alternate CJK ideographs and accented letters to exercise the slow path
+            char c = value.charAt(i);
+            wide.append((i % 2 == 0) ? (char) (0x4E00 + c) : c);
+            if (i % 3 == 0) {
+                wide.append('\u0301');
+            }
+        }
+        wideValue = wide.toString();
+        fittingValue = value.substring(0, Math.min(value.length(), width));
+        field = new TextField(value, width, alignment);
+        buffer = new StringBuilder(width);
+    }
+
+    @Benchmark
+    public String align() {
+        return TextFormatter.align(fittingValue, width, ' ', alignment);
+    }
+
+    @Benchmark
+    public int displayWidth() {
+        return TextFormatter.displayWidth(value);
+    }
+
+    @Benchmark
+    public int displayWidthWide() {
+        return TextFormatter.displayWidth(wideValue);
+    }
+
+    @Benchmark
+    public StringBuilder fitWideInto() {
+        buffer.setLength(0);
+        TextField.fit(buffer, wideValue, width, alignment, ' ');
+        return buffer;
+    }
+
+    @Benchmark
+    public String fill() {
+        return TextFormatter.fill(width, '-');
+    }
+
+    @Benchmark
+    public StringBuilder fillInto() {
+        buffer.setLength(0);
+        TextFormatter.fill(buffer, width, '-');
+        return buffer;
+    }
+
+    @Benchmark
+    public String fittedText() {
+        return field.getFittedText();
+    }
+
+    @Benchmark
+    public StringBuilder fitInto() {
+        buffer.setLength(0);
+        TextField.fit(buffer, value, width, alignment, ' ');
+        return buffer;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text.benchmark;
+
+import org.freedomdave.utils.text.TextFormatter;
+import org.freedomdave.utils.text.TextTableColumn;
+import org.freedomdave.utils.text.TextTableGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for building and rendering whole tables.  The default parameters cover a small and a
+ * large table so a full run stays short; widen them from the command line, e.g.
+ * {@code mvn -P benchmarks verify -Djmh.args="-prof gc -p rows=10,1000000 -p alignment=LEFT,RIGHT,CENTER TextTableGenerator"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextTableGeneratorBenchmark {
+    @Param({"1000", "100000"})
+    private int rows;
+
+    @Param({"12"})
+    private int columns;
+
+    @Param({"16"})
+    private int valueLength;
+
+    @Param({"LEFT"})
+    private TextFormatter.Alignment alignment;
+
+    // when true every column has a fixed width of half the value length, so most cells are truncated
+    @Param({"false", "true"})
+    private boolean truncated;
+
+    private List<List<String>> data;
+    private TextTableGenerator generator;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.rows(rows, columns, valueLength);
+        generator = createGenerator();
+        for (List<String> row : data) {
+            generator.addRow(row);
+        }
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate();
+    }
+
+    @Benchmark
+    public void generateToWriter() throws IOException {
+        generator.writeTo(NullWriter.INSTANCE);
+    }
+
+    @Benchmark
+    public String generateParallel() {
+        return generator.generateParallel();
+    }
+
+    @Benchmark
+    public TextTableGenerator addRows() {
+        TextTableGenerator table = createGenerator();
+        for (List<String> row : data) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public void columnWidth(Blackhole blackhole) {
+        for (int i = 0; i < columns; i++) {
+            blackhole.consume(generator.getColumnByIndex(i).getWidth());
+        }
+    }
+
+    private TextTableGenerator createGenerator() {
+        TextTableGenerator table = new TextTableGenerator();
+        for (int i = 0; i < columns; i++) {
+            TextTableColumn column = new TextTableColumn("COLUMN " + i);
+            column.setAlignment(alignment);
+            if (truncated) {
+                column.setWidth(valueLength / 2);
+            }
+            table.addColumn(column);
+        }
+        return table;
+    }
+
+    /**
+     * Writer that discards its output, so only the rendering cost is measured.
+     */
+    private static class NullWriter extends Writer {
+        static final NullWriter INSTANCE = new NullWriter();
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Generates deterministic random table data.
+     */
+    static class BenchmarkData {
+        private static final long SEED = 42;
+
+        static List<List<String>> rows(int rows, int columns, int valueLength) {
+            Random random = new Random(SEED);
+            List<List<String>> data = new ArrayList<>(rows);
+            for (int r = 0; r < rows; r++) {
+                String[] row = new String[columns];
+                for (int c = 0; c < columns; c++) {
+                    row[c] = value(random, valueLength);
+                }
+                data.add(Arrays.asList(row));
+            }
+            return data;
+        }
+
+        static String value(Random random, int maxLength) {
+            int length = 1 + random.nextInt(maxLength);
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) ('a' + random.nextInt(26));
+            }
+            return new String(chars);
+        }
+    }
+}
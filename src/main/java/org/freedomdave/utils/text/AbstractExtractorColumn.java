@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Base class for read-only columns whose values are extracted on demand from a caller-owned
+ * list of objects, one object per row.  Subclasses only extract and format the values; this
+ * class provides the row count, a read-only view of the values and the auto-width, which is
+ * recalculated when the column version changes.
+ * <p>
+ * The column notices when the size of the source list changes.  Call {@link #refresh()} after
+ * modifying the objects in the list in place so the width is recalculated.
+ *
+ * @param <T> The type of the objects in the source list.
+ * @see ExtractorColumn
+ * @see LongExtractorColumn
+ */
+public abstract class AbstractExtractorColumn<T> extends TextTableColumn {
+    private final List<? extends T> source;
+
+    private int sourceSize;
+    private int maxValueWidth;
+    private long maxValueWidthVersion = -1;
+    private boolean variableWidthValues;
+    private long variableWidthVersion = -1;
+
+    /**
+     * Constructor
+     *
+     * @param name   [in] The name of the column (and header label if headers are activated.
+     * @param source [in] The objects the values are extracted from, one per row.  The list
+     *               should support fast random access.
+     */
+    protected AbstractExtractorColumn(String name, List<? extends T> source) {
+        super(name);
+        this.source = source;
+        this.sourceSize = source.size();
+    }
+
+    /**
+     * Marks the column as modified.  Call this after changing the objects in the source list.
+     */
+    public void refresh() {
+        markModified();
+    }
+
+    @Override
+    public long getVersion() {
+        if (source.size() != sourceSize) {
+            sourceSize = source.size();
+            refresh();
+        }
+        return super.getVersion();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("clear: values are extracted from the source list");
+    }
+
+    /**
+     * Returns a read-only view of the values of the column.
+     */
+    @Override
+    public List<String> getValues() {
+        return new ExtractedValues();
+    }
+
+    @Override
+    public void setValues(List<String> values) {
+        throw new UnsupportedOperationException("setValues: values are extracted from the source list");
+    }
+
+    @Override
+    public void addValues(Collection<String> values) {
+        throw new UnsupportedOperationException("addValues: values are extracted from the source list");
+    }
+
+    @Override
+    public void addValue(String value) {
+        throw new UnsupportedOperationException("addValue: values are extracted from the source list");
+    }
+
+    @Override
+    public int getNumRows() {
+        return source.size();
+    }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    protected int getMaxValueWidth() {
+        long version = getVersion();
+        if (version != maxValueWidthVersion) {
+            int max = 0;
+            for (int row = 0, rows = getNumRows(); row < rows; row++) {
+                max = Math.max(max, getRowWidth(row));
+            }
+            maxValueWidth = max;
+            maxValueWidthVersion = version;
+        }
+        return maxValueWidth;
+    }
+
+    @Override
+    protected boolean hasVariableWidthValues() {
+        long version = getVersion();
+        if (version != variableWidthVersion) {
+            boolean variable = false;
+            for (int row = 0, rows = getNumRows(); row < rows && !variable; row++) {
+                variable = isVariableWidth(row);
+            }
+            variableWidthValues = variable;
+            variableWidthVersion = version;
+        }
+        return variableWidthValues;
+    }
+
+    /**
+     * Returns the source object of a (zero based) row.
+     */
+    protected T getSource(int row) {
+        if (row < 0 || row >= source.size()) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + source.size());
+        }
+        return source.get(row);
+    }
+
+    /**
+     * Returns true if the display width of the value of a row differs from its length.  The
+     * default implementation returns false, which is correct for values made up of
+     * single-column characters.
+     *
+     * @param row [in] The (zero based) row index.
+     */
+    protected boolean isVariableWidth(int row) {
+        return false;
+    }
+
+    /**
+     * Read-only list view that extracts values on demand.
+     */
+    private class ExtractedValues extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getRowValue(index);
+        }
+
+        @Override
+        public int size() {
+            return getNumRows();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A table that many threads can add rows to concurrently, e.g. worker threads reporting results
+ * into one summary table.  Each row claims a slot with a single atomic increment and is stored
+ * in chunked slot arrays, so writers never block each other.  Column widths are maintained with
+ * atomic max updates as rows are added.
+ * <p>
+ * {@link #snapshot()} returns a generator over a consistent prefix of the rows (every row that
+ * had been completely added, up to the first one still being written) that can be rendered
+ * while writers carry on.  The snapshot shares the row storage rather than copying it.
+ * Because widths are maintained as rows arrive, a snapshot may be sized for rows added after
+ * it was taken.
+ */
+public class ConcurrentTextTable {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final TextTableColumn[] templates;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicIntegerArray maxWidths;
+    // 1 for columns with a value whose display width differs from its length
+    private final AtomicIntegerArray variableWidths;
+    private final Object chunkLock = new Object();
+    private volatile AtomicReferenceArray<String[]>[] chunks;
+    private final AtomicInteger committed = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param columns [in] The columns of the table.  Their names, alignments and widths are
+     *                used by snapshots; any values they hold are ignored.
+     */
+    public ConcurrentTextTable(TextTableColumn... columns) {
+        this.templates = columns.clone();
+        this.maxWidths = new AtomicIntegerArray(columns.length);
+        this.variableWidths = new AtomicIntegerArray(columns.length);
+        @SuppressWarnings("unchecked")
+        AtomicReferenceArray<String[]>[] empty = (AtomicReferenceArray<String[]>[]) new AtomicReferenceArray<?>[0];
+        this.chunks = empty;
+    }
+
+    /**
+     * Adds a row to the table.  This method may be called concurrently from any number of
+     * threads.
+     *
+     * @param row [in] A list of row values.  Missing values are added as empty cells and extra
+     *            values are ignored.
+     */
+    public void addRow(List<String> row) {
+        String[] values = new String[templates.length];
+        for (int i = 0; i < values.length; i++) {
+            String value = (i < row.size()) ? row.get(i) : TextTableColumn.EMPTY_VALUE;
+            values[i] = value;
+            int width = TextFormatter.displayWidth(value);
+            updateMaxWidth(i, width);
+            if (width != value.length() && variableWidths.get(i) == 0) {
+                variableWidths.set(i, 1);
+            }
+        }
+        int slot = nextSlot.getAndIncrement();
+        chunk(slot >>> CHUNK_SHIFT).set(slot & CHUNK_MASK, values);
+    }
+
+    /**
+     * Returns the number of rows completely added to the table, up to the first row that is
+     * still being written.
+     */
+    public int getNumRows() {
+        int rows = committed.get();
+        int claimed = nextSlot.get();
+        AtomicReferenceArray<String[]>[] current = chunks;
+        while (rows < claimed && (rows >>> CHUNK_SHIFT) < current.length
+                && current[rows >>> CHUNK_SHIFT].get(rows & CHUNK_MASK) != null) {
+            rows++;
+        }
+        // several readers may advance the watermark; keep the largest
+        return committed.accumulateAndGet(rows, Math::max);
+    }
+
+    /**
+     * Returns a generator over the rows that have been completely added to the table.  Rows
+     * added afterwards are not part of the snapshot.
+     */
+    public TextTableGenerator snapshot() {
+        int rows = getNumRows();
+        AtomicReferenceArray<String[]>[] current = chunks;
+        TextTableGenerator generator = new TextTableGenerator();
+        for (int i = 0; i < templates.length; i++) {
+            generator.addColumn(new SnapshotColumn(templates[i], i, current, rows, maxWidths.get(i),
+                    variableWidths.get(i) != 0));
+        }
+        return generator;
+    }
+
+    private void updateMaxWidth(int column, int width) {
+        int max = maxWidths.get(column);
+        while (width > max && !maxWidths.compareAndSet(column, max, width)) {
+            max = maxWidths.get(column);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<String[]> chunk(int index) {
+        AtomicReferenceArray<String[]>[] current = chunks;
+        if (index < current.length) {
+            return current[index];
+        }
+        synchronized (chunkLock) {
+            current = chunks;
+            if (index >= current.length) {
+                int length = Math.max(index + 1, current.length * 2);
+                AtomicReferenceArray<String[]>[] grown = Arrays.copyOf(current, length);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+                }
+                chunks = grown;
+                current = grown;
+            }
+            return current[index];
+        }
+    }
+
+    /**
+     * A read-only column over a prefix of the rows of the table.
+     */
+    private static class SnapshotColumn extends TextTableColumn {
+        private final int index;
+        private final AtomicReferenceArray<String[]>[] chunks;
+        private final int rows;
+        private final int maxValueWidth;
+        private final boolean variableWidthValues;
+
+        SnapshotColumn(TextTableColumn template, int index, AtomicReferenceArray<String[]>[] chunks, int rows,
+                       int maxValueWidth, boolean variableWidthValues) {
+            super(template.getName());
+            setAlignment(template.getAlignment());
+            setWidthPolicy(template.getWidthPolicy());
+            if (!template.isAutoWidth()) {
+                setWidth(template.getWidth());
+            }
+            this.index = index;
+            this.chunks = chunks;
+            this.rows = rows;
+            this.maxValueWidth = maxValueWidth;
+            this.variableWidthValues = variableWidthValues;
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("snapshot columns are read-only");
+        }
+
+        @Override
+        public List<String> getValues() {
+            return new RowValues();
+        }
+
+        @Override
+        public void setValues(List<String> values) {
+            throw new UnsupportedOperationException("snapshot columns are read-only");
+        }
+
+        @Override
+        public void addValues(Collection<String> values) {
+            throw new UnsupportedOperationException("snapshot columns are read-only");
+        }
+
+        @Override
+        public void addValue(String value) {
+            throw new UnsupportedOperationException("snapshot columns are read-only");
+        }
+
+        @Override
+        public int getNumRows() {
+            return rows;
+        }
+
+        @Override
+        protected boolean isReadOnly() {
+            return true;
+        }
+
+        @Override
+        public String getRowValue(int row) {
+            if (row < 0 || row >= rows) {
+                throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + rows);
+            }
+            return chunks[row >>> CHUNK_SHIFT].get(row & CHUNK_MASK)[index];
+        }
+
+        @Override
+        protected int getMaxValueWidth() {
+            return maxValueWidth;
+        }
+
+        @Override
+        protected boolean hasVariableWidthValues() {
+            return variableWidthValues;
+        }
+
+        private class RowValues extends AbstractList<String> implements RandomAccess {
+            @Override
+            public String get(int row) {
+                return getRowValue(row);
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        }
+    }
+}
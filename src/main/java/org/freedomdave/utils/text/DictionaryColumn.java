@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A column for low-cardinality data (e.g. status or region) that stores each distinct value
+ * once in a dictionary and a small integer code per row.  Codes are stored as shorts until the
+ * dictionary grows beyond 65,536 entries.  The auto-width of the column is calculated over the
+ * dictionary only, and when rendering each distinct value is fitted once and then copied into
+ * every cell that uses it.  Output is identical to a plain {@link TextTableColumn} holding the
+ * same values.
+ */
+public class DictionaryColumn extends TextTableColumn {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_SHORT_CODES = 1 << 16;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+    private short[] shortCodes = new short[INITIAL_CAPACITY];
+    private int[] intCodes;
+    private int size;
+    private int maxValueWidth;
+    private boolean variableWidthValues;
+
+    // Fitted text of each dictionary entry for the width and alignment of the last render
+    private volatile FittedValues fittedValues;
+
+    /**
+     * Constructor
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    public DictionaryColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the distinct values of the column in the order they were first added.
+     */
+    public List<String> getDistinctValues() {
+        return Collections.unmodifiableList(dictionary);
+    }
+
+    @Override
+    public void clear() {
+        markModified();
+        dictionary.clear();
+        codes.clear();
+        shortCodes = new short[INITIAL_CAPACITY];
+        intCodes = null;
+        size = 0;
+        maxValueWidth = 0;
+        variableWidthValues = false;
+        fittedValues = null;
+    }
+
+    /**
+     * Returns a read-only view of the values of the column.
+     */
+    @Override
+    public List<String> getValues() {
+        return new DecodedValues();
+    }
+
+    @Override
+    public void setValues(List<String> values) {
+        clear();
+        addValues(values);
+    }
+
+    @Override
+    public void addValues(Collection<String> values) {
+        for (String value : values) {
+            addValue(value);
+        }
+    }
+
+    @Override
+    public void addValue(String value) {
+        markRowsModified(size, size + 1);
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codes.put(value, code);
+            int width = TextFormatter.displayWidth(value);
+            maxValueWidth = Math.max(maxValueWidth, width);
+            variableWidthValues |= (width != value.length());
+            if (code == MAX_SHORT_CODES) {
+                widenCodes();
+            }
+        }
+        if (intCodes != null) {
+            if (size == intCodes.length) {
+                intCodes = Arrays.copyOf(intCodes, size * 2);
+            }
+            intCodes[size++] = code;
+        } else {
+            if (size == shortCodes.length) {
+                shortCodes = Arrays.copyOf(shortCodes, size * 2);
+            }
+            shortCodes[size++] = (short) (int) code;
+        }
+    }
+
+    @Override
+    public int getNumRows() {
+        return size;
+    }
+
+    @Override
+    public String getRowValue(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + size);
+        }
+        return dictionary.get(code(row));
+    }
+
+    @Override
+    protected int getMaxValueWidth() {
+        return maxValueWidth;
+    }
+
+    @Override
+    protected boolean hasVariableWidthValues() {
+        return variableWidthValues;
+    }
+
+    @Override
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        FittedValues fitted = fittedValues;
+        if (fitted == null || !fitted.matches(width, getAlignment(), dictionary.size())) {
+            fitted = new FittedValues(width, getAlignment());
+            fittedValues = fitted;
+        }
+        int code = code(row);
+        sb.append(fitted.text[code]);
+        return fitted.truncated[code];
+    }
+
+    private int code(int row) {
+        return (intCodes != null) ? intCodes[row] : (shortCodes[row] & 0xFFFF);
+    }
+
+    private void widenCodes() {
+        intCodes = new int[Math.max(INITIAL_CAPACITY, shortCodes.length)];
+        for (int row = 0; row < size; row++) {
+            intCodes[row] = shortCodes[row] & 0xFFFF;
+        }
+        shortCodes = null;
+    }
+
+    /**
+     * The fitted text of every dictionary entry for a particular width and alignment.  Instances
+     * are immutable once published so they can be shared by parallel renders.
+     */
+    private class FittedValues {
+        private final int width;
+        private final TextFormatter.Alignment alignment;
+        private final char[][] text;
+        private final boolean[] truncated;
+
+        FittedValues(int width, TextFormatter.Alignment alignment) {
+            this.width = width;
+            this.alignment = alignment;
+            this.text = new char[dictionary.size()][];
+            this.truncated = new boolean[text.length];
+            StringBuilder sb = new StringBuilder(width);
+            for (int code = 0; code < text.length; code++) {
+                sb.setLength(0);
+                truncated[code] = TextField.fit(sb, dictionary.get(code), width, alignment, ' ');
+                text[code] = new char[sb.length()];
+                sb.getChars(0, sb.length(), text[code], 0);
+            }
+        }
+
+        boolean matches(int width, TextFormatter.Alignment alignment, int entries) {
+            return this.width == width && this.alignment == alignment && text.length == entries;
+        }
+    }
+
+    /**
+     * Read-only list view that decodes values on demand.
+     */
+    private class DecodedValues extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getRowValue(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
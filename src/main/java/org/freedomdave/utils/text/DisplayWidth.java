@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.Arrays;
+
+/**
+ * Terminal display width of text.  East Asian Wide and Fullwidth characters (CJK, Hangul,
+ * most emoji) and characters followed by the emoji presentation selector (U+FE0F) take two
+ * columns, combining marks and other zero-width characters take none, and everything else
+ * takes one.  Text is measured and truncated in grapheme clusters (a base character with its
+ * combining marks, a ZWJ emoji sequence or a regional indicator flag), so truncation never
+ * splits a surrogate pair or separates an accent from its letter.
+ * <p>
+ * Widths of BMP characters come from a lookup table built once when the class is loaded.
+ * Characters below U+0300 (ASCII and Latin-1) are a single column unless they start a cluster
+ * (e.g. a digit or the copyright sign followed by U+FE0F), so text made up only of them is
+ * measured with a single pass over its characters.
+ */
+final class DisplayWidth {
+    // All characters below this take exactly one column and never combine with their neighbours
+    private static final char SIMPLE_LIMIT = 0x300;
+    private static final int ZWJ = 0x200D;
+    // Variation selector 16 requests emoji presentation, which terminals draw two columns wide
+    private static final char EMOJI_PRESENTATION = '\uFE0F';
+    private static final int REGIONAL_INDICATOR_FIRST = 0x1F1E6;
+    private static final int REGIONAL_INDICATOR_LAST = 0x1F1FF;
+
+    /**
+     * Inclusive ranges of East Asian Wide (W) and Fullwidth (F) code points, as pairs of first
+     * and last code point, in ascending order.
+     */
+    private static final int[] WIDE_RANGES = {
+            0x1100, 0x115F, 0x231A, 0x231B, 0x2329, 0x232A, 0x23E9, 0x23EC, 0x23F0, 0x23F0,
+            0x23F3, 0x23F3, 0x25FD, 0x25FE, 0x2614, 0x2615, 0x2648, 0x2653, 0x267F, 0x267F,
+            0x2693, 0x2693, 0x26A1, 0x26A1, 0x26AA, 0x26AB, 0x26BD, 0x26BE, 0x26C4, 0x26C5,
+            0x26CE, 0x26CE, 0x26D4, 0x26D4, 0x26EA, 0x26EA, 0x26F2, 0x26F3, 0x26F5, 0x26F5,
+            0x26FA, 0x26FA, 0x26FD, 0x26FD, 0x2705, 0x2705, 0x270A, 0x270B, 0x2728, 0x2728,
+            0x274C, 0x274C, 0x274E, 0x274E, 0x2753, 0x2755, 0x2757, 0x2757, 0x2795, 0x2797,
+            0x27B0, 0x27B0, 0x27BF, 0x27BF, 0x2B1B, 0x2B1C, 0x2B50, 0x2B50, 0x2B55, 0x2B55,
+            0x2E80, 0x303E, 0x3041, 0x33FF, 0x3400, 0x4DBF, 0x4E00, 0x9FFF, 0xA000, 0xA4CF,
+            0xA960, 0xA97F, 0xAC00, 0xD7A3, 0xF900, 0xFAFF, 0xFE10, 0xFE19, 0xFE30, 0xFE6F,
+            0xFF00, 0xFF60, 0xFFE0, 0xFFE6, 0x16FE0, 0x16FE4, 0x17000, 0x18AFF, 0x1B000, 0x1B2FF,
+            0x1F004, 0x1F004, 0x1F0CF, 0x1F0CF, 0x1F18E, 0x1F18E, 0x1F191, 0x1F19A, 0x1F200, 0x1F202,
+            0x1F210, 0x1F23B, 0x1F240, 0x1F248, 0x1F250, 0x1F251, 0x1F260, 0x1F265, 0x1F300, 0x1F320,
+            0x1F32D, 0x1F335, 0x1F337, 0x1F37C, 0x1F37E, 0x1F393, 0x1F3A0, 0x1F3CA, 0x1F3CF, 0x1F3D3,
+            0x1F3E0, 0x1F3F0, 0x1F3F4, 0x1F3F4, 0x1F3F8, 0x1F43E, 0x1F440, 0x1F440, 0x1F442, 0x1F4FC,
+            0x1F4FF, 0x1F53D, 0x1F54B, 0x1F54E, 0x1F550, 0x1F567, 0x1F57A, 0x1F57A, 0x1F595, 0x1F596,
+            0x1F5A4, 0x1F5A4, 0x1F5FB, 0x1F64F, 0x1F680, 0x1F6C5, 0x1F6CC, 0x1F6CC, 0x1F6D0, 0x1F6D2,
+            0x1F6D5, 0x1F6D7, 0x1F6EB, 0x1F6EC, 0x1F6F4, 0x1F6FC, 0x1F7E0, 0x1F7EB, 0x1F90C, 0x1F93A,
+            0x1F93C, 0x1F945, 0x1F947, 0x1F9FF, 0x1FA70, 0x1FAFF, 0x20000, 0x2FFFD, 0x30000, 0x3FFFD
+    };
+
+    private static final byte[] BMP_WIDTHS = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            BMP_WIDTHS[c] = (byte) lookup(c);
+        }
+    }
+
+    private DisplayWidth() {
+    }
+
+    /**
+     * Returns the number of columns a code point occupies on its own: 0, 1 or 2.
+     */
+    static int of(int codePoint) {
+        if (codePoint <= Character.MAX_VALUE) {
+            return BMP_WIDTHS[codePoint];
+        }
+        return lookup(codePoint);
+    }
+
+    /**
+     * Returns the number of columns the characters in [start, end) of the text occupy.
+     */
+    static int of(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && text.charAt(i) < SIMPLE_LIMIT) {
+            i++;
+        }
+        // the last simple character may be the base of a cluster that continues after it
+        if (i < end && i > start) {
+            i--;
+        }
+        int width = i - start;
+        while (i < end) {
+            if (text.charAt(i) < SIMPLE_LIMIT && (i + 1 == end || text.charAt(i + 1) < SIMPLE_LIMIT)) {
+                width++;
+                i++;
+                continue;
+            }
+            int clusterEnd = clusterEnd(text, i, end);
+            width += clusterWidth(text, i, clusterEnd);
+            i = clusterEnd;
+        }
+        return width;
+    }
+
+    /**
+     * Returns the end of the longest prefix of the text, starting at start, that fits within
+     * the given number of columns without splitting a grapheme cluster.
+     */
+    static int prefixEnd(CharSequence text, int start, int end, int columns) {
+        int i = start;
+        int width = 0;
+        while (i < end) {
+            if (text.charAt(i) < SIMPLE_LIMIT && (i + 1 == end || text.charAt(i + 1) < SIMPLE_LIMIT)) {
+                if (width == columns) {
+                    break;
+                }
+                width++;
+                i++;
+                continue;
+            }
+            int clusterEnd = clusterEnd(text, i, end);
+            width += clusterWidth(text, i, clusterEnd);
+            if (width > columns) {
+                break;
+            }
+            i = clusterEnd;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the end of the grapheme cluster starting at the specified position.  A cluster is
+     * a code point followed by any zero-width code points (combining marks, variation selectors)
+     * and any code points joined to it with a zero width joiner.  Two regional indicators form a
+     * single cluster (a flag).
+     */
+    private static int clusterEnd(CharSequence text, int start, int end) {
+        int base = Character.codePointAt(text, start);
+        int i = start + Character.charCount(base);
+        if (isRegionalIndicator(base) && i < end) {
+            int next = Character.codePointAt(text, i);
+            if (isRegionalIndicator(next)) {
+                i += Character.charCount(next);
+            }
+        }
+        while (i < end) {
+            int cp = Character.codePointAt(text, i);
+            if (cp == ZWJ) {
+                i += Character.charCount(cp);
+                if (i < end) {
+                    i += Character.charCount(Character.codePointAt(text, i));
+                }
+            } else if (of(cp) == 0) {
+                i += Character.charCount(cp);
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns the width of a grapheme cluster, which is the width of its first code point, or
+     * two columns for a flag or a character followed by the emoji presentation selector.
+     */
+    private static int clusterWidth(CharSequence text, int start, int end) {
+        int base = Character.codePointAt(text, start);
+        int i = start + Character.charCount(base);
+        if (isRegionalIndicator(base) && end > i) {
+            return 2;
+        }
+        int width = of(base);
+        if (width == 1) {
+            for (; i < end; i++) {
+                if (text.charAt(i) == EMOJI_PRESENTATION) {
+                    return 2;
+                }
+            }
+        }
+        return width;
+    }
+
+    private static boolean isRegionalIndicator(int codePoint) {
+        return codePoint >= REGIONAL_INDICATOR_FIRST && codePoint <= REGIONAL_INDICATOR_LAST;
+    }
+
+    private static int lookup(int codePoint) {
+        if (codePoint < SIMPLE_LIMIT) {
+            return 1;
+        }
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.FORMAT:
+                return 0;
+            default:
+                break;
+        }
+        if (codePoint >= 0x1160 && codePoint <= 0x11FF) {
+            // Hangul Jamo medial vowels and final consonants combine with the preceding syllable
+            return 0;
+        }
+        int index = Arrays.binarySearch(WIDE_RANGES, codePoint);
+        // an exact match, or falling between the first and last code point of a range
+        if (index >= 0 || (-index - 1) % 2 == 1) {
+            return 2;
+        }
+        return 1;
+    }
+}
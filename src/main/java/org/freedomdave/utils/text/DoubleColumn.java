@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * A numeric column that stores its values in a double array.  Values are formatted with a
+ * fixed number of decimal places (rounded half up), optionally with grouping separators, which
+ * makes the column suitable for money values.  NaN and infinite values are formatted as by
+ * {@link Double#toString(double)}.
+ */
+public class DoubleColumn extends NumericColumn {
+    /**
+     * The default number of decimal places.
+     */
+    public static final int DEFAULT_DECIMAL_PLACES = 2;
+
+    /**
+     * The maximum supported number of decimal places.
+     */
+    public static final int MAX_DECIMAL_PLACES = 9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    // Largest scaled value that can be rounded to a long without overflowing
+    private static final double MAX_SCALED = 9.0e18;
+
+    private double[] data = new double[INITIAL_CAPACITY];
+    private int decimalPlaces;
+
+    /**
+     * Constructor
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    public DoubleColumn(String name) {
+        this(name, DEFAULT_DECIMAL_PLACES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name          [in] The name of the column (and header label if headers are activated.
+     * @param decimalPlaces [in] The number of decimal places values are formatted with.
+     */
+    public DoubleColumn(String name, int decimalPlaces) {
+        super(name);
+        setDecimalPlaces(decimalPlaces);
+    }
+
+    /**
+     * Returns the number of decimal places values are formatted with.
+     */
+    public int getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+    /**
+     * Sets the number of decimal places values are formatted with.
+     * @param decimalPlaces [in] Number of decimal places, from 0 to {@link #MAX_DECIMAL_PLACES}.
+     */
+    public void setDecimalPlaces(int decimalPlaces) {
+        if (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES) {
+            String msg = String.format("setDecimalPlaces: invalid decimal places [%d] -> must be between 0 and %d",
+                    decimalPlaces, MAX_DECIMAL_PLACES);
+            throw new IllegalArgumentException(msg);
+        }
+        this.decimalPlaces = decimalPlaces;
+        formatChanged();
+    }
+
+    /**
+     * Adds a single value to the existing column data.
+     */
+    public void addDouble(double value) {
+        int row = reserveRow();
+        data[row] = value;
+        valueAdded(row);
+    }
+
+    /**
+     * Returns the value for a particular (zero based) row index.  Empty rows return zero.
+     */
+    public double getDouble(int row) {
+        checkRow(row);
+        return data[row];
+    }
+
+    @Override
+    protected int compareValues(int row1, int row2) {
+        return Double.compare(data[row1], data[row2]);
+    }
+
+    @Override
+    protected void addParsedValue(String value) {
+        addDouble(Double.parseDouble(value));
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    @Override
+    protected int getValueWidth(int row) {
+        double value = data[row];
+        long scaled = scale(value);
+        if (scaled > 0) {
+            return formatLargeOrSpecial(value).length();
+        }
+        return formattedWidth(scaled, isNegative(value, scaled), decimalPlaces);
+    }
+
+    @Override
+    protected void appendValue(StringBuilder sb, int row) {
+        double value = data[row];
+        long scaled = scale(value);
+        if (scaled > 0) {
+            sb.append(formatLargeOrSpecial(value));
+        } else {
+            appendFormatted(sb, scaled, isNegative(value, scaled), decimalPlaces);
+        }
+    }
+
+    /**
+     * Returns the magnitude of a value scaled by the number of decimal places, rounded and
+     * negated, or 1 if the value is NaN, infinite or too large to be scaled into a long.
+     */
+    private long scale(double value) {
+        double scaled = Math.abs(value) * POWERS_OF_TEN[decimalPlaces];
+        if (Double.isNaN(scaled) || scaled >= MAX_SCALED) {
+            return 1;
+        }
+        return -Math.round(scaled);
+    }
+
+    private static boolean isNegative(double value, long scaled) {
+        // values that round to zero are formatted without a sign
+        return value < 0 && scaled != 0;
+    }
+
+    private String formatLargeOrSpecial(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.toString(value);
+        }
+        String plain = new BigDecimal(value).setScale(decimalPlaces, RoundingMode.HALF_UP).toPlainString();
+        if (!isGrouping()) {
+            return plain;
+        }
+        int start = (plain.charAt(0) == '-') ? 1 : 0;
+        int end = plain.indexOf('.');
+        if (end < 0) {
+            end = plain.length();
+        }
+        StringBuilder sb = new StringBuilder(plain);
+        for (int i = end - 3; i > start; i -= 3) {
+            sb.insert(i, GROUPING_SEPARATOR);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A read-only column whose values are extracted on demand from a caller-owned list of objects,
+ * so a table can be rendered over an existing collection without copying every field into a
+ * list of strings first.  Each value is extracted when the auto-width of the column is
+ * calculated and again when it is rendered; enable memoization to extract each value only
+ * once at the cost of holding the strings.
+ * <p>
+ * The column notices when the size of the source list changes.  Call {@link #refresh()} after
+ * modifying the objects in the list in place so the width is recalculated.
+ *
+ * @param <T> The type of the objects in the source list.
+ * @see LongExtractorColumn
+ */
+public class ExtractorColumn<T> extends AbstractExtractorColumn<T> {
+    private final Function<? super T, String> extractor;
+    private boolean memoized;
+
+    private String[] memo;
+
+    /**
+     * Constructor
+     *
+     * @param name      [in] The name of the column (and header label if headers are activated.
+     * @param source    [in] The objects the values are extracted from, one per row.  The list
+     *                  should support fast random access.
+     * @param extractor [in] Returns the value of the column for an object.  Null values are
+     *                  rendered as empty cells.
+     */
+    public ExtractorColumn(String name, List<? extends T> source, Function<? super T, String> extractor) {
+        super(name, source);
+        this.extractor = extractor;
+    }
+
+    /**
+     * Returns true if extracted values are kept so each is only extracted once.
+     */
+    public boolean isMemoized() {
+        return memoized;
+    }
+
+    /**
+     * Sets whether extracted values are kept so each is only extracted once.
+     */
+    public void setMemoized(boolean memoized) {
+        this.memoized = memoized;
+        this.memo = null;
+    }
+
+    /**
+     * Discards any memoized values and marks the column as modified.  Call this after changing
+     * the objects in the source list.
+     */
+    @Override
+    public void refresh() {
+        memo = null;
+        super.refresh();
+    }
+
+    @Override
+    public String getRowValue(int row) {
+        if (!memoized) {
+            return extract(row);
+        }
+        int rows = getNumRows();
+        String[] values = memo;
+        if (values == null || values.length != rows) {
+            values = new String[rows];
+            memo = values;
+        }
+        // racing renders may both extract a value, but they store the same result
+        String value = values[row];
+        if (value == null) {
+            value = extract(row);
+            values[row] = value;
+        }
+        return value;
+    }
+
+    @Override
+    protected boolean isVariableWidth(int row) {
+        String value = getRowValue(row);
+        return TextFormatter.displayWidth(value) != value.length();
+    }
+
+    private String extract(int row) {
+        String value = extractor.apply(getSource(row));
+        return (value == null) ? EMPTY_VALUE : value;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.Arrays;
+
+/**
+ * A numeric column that stores its values in a long array.  Values are formatted as plain
+ * integers, optionally with grouping separators.  Use this column for int, short and byte
+ * values as well.
+ */
+public class LongColumn extends NumericColumn {
+    private long[] data = new long[INITIAL_CAPACITY];
+
+    /**
+     * Constructor
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    public LongColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Adds a single value to the existing column data.
+     */
+    public void addLong(long value) {
+        int row = reserveRow();
+        data[row] = value;
+        valueAdded(row);
+    }
+
+    /**
+     * Returns the value for a particular (zero based) row index.  Empty rows return zero.
+     */
+    public long getLong(int row) {
+        checkRow(row);
+        return data[row];
+    }
+
+    @Override
+    protected int compareValues(int row1, int row2) {
+        return Long.compare(data[row1], data[row2]);
+    }
+
+    @Override
+    protected void addParsedValue(String value) {
+        addLong(Long.parseLong(value));
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    @Override
+    protected int getValueWidth(int row) {
+        long value = data[row];
+        return formattedWidth(negativeMagnitude(value), value < 0, 0);
+    }
+
+    @Override
+    protected void appendValue(StringBuilder sb, int row) {
+        long value = data[row];
+        appendFormatted(sb, negativeMagnitude(value), value < 0, 0);
+    }
+}
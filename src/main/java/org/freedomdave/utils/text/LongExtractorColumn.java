@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * A read-only numeric column whose values are extracted on demand from a caller-owned list of
+ * objects.  Values are never converted to strings: widths are calculated from digit counts and
+ * digits are written straight into the output with the formatting helpers of
+ * {@link NumericColumn}.  The column is right aligned by default.
+ * <p>
+ * The column notices when the size of the source list changes.  Call {@link #refresh()} after
+ * modifying the objects in the list in place so the width is recalculated.
+ *
+ * @param <T> The type of the objects in the source list.
+ * @see ExtractorColumn
+ */
+public class LongExtractorColumn<T> extends AbstractExtractorColumn<T> {
+    private final ToLongFunction<? super T> extractor;
+    private boolean grouping;
+
+    /**
+     * Constructor
+     *
+     * @param name      [in] The name of the column (and header label if headers are activated.
+     * @param source    [in] The objects the values are extracted from, one per row.  The list
+     *                  should support fast random access.
+     * @param extractor [in] Returns the value of the column for an object.
+     */
+    public LongExtractorColumn(String name, List<? extends T> source, ToLongFunction<? super T> extractor) {
+        super(name, source);
+        this.extractor = extractor;
+        setAlignment(TextFormatter.Alignment.RIGHT);
+    }
+
+    /**
+     * Returns true if digits are grouped with {@link NumericColumn#GROUPING_SEPARATOR}.
+     */
+    public boolean isGrouping() {
+        return grouping;
+    }
+
+    /**
+     * Sets whether digits are grouped with {@link NumericColumn#GROUPING_SEPARATOR}.
+     */
+    public void setGrouping(boolean grouping) {
+        this.grouping = grouping;
+        markModified();
+    }
+
+    /**
+     * Returns the value for a particular (zero based) row index.
+     */
+    public long getLong(int row) {
+        return extractor.applyAsLong(getSource(row));
+    }
+
+    @Override
+    public String getRowValue(int row) {
+        StringBuilder sb = new StringBuilder();
+        appendValue(sb, getLong(row));
+        return sb.toString();
+    }
+
+    @Override
+    protected int getRowWidth(int row) {
+        long value = getLong(row);
+        return NumericColumn.formattedWidth(NumericColumn.negativeMagnitude(value), value < 0, 0, grouping);
+    }
+
+    @Override
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        long value = getLong(row);
+        int valueWidth = NumericColumn.formattedWidth(NumericColumn.negativeMagnitude(value), value < 0, 0,
+                grouping);
+        if (valueWidth > width) {
+            return TextField.fit(sb, getRowValue(row), width, getAlignment(), ' ');
+        }
+        int padSize = width - valueWidth;
+        int leading = NumericColumn.leadingPadding(getAlignment(), padSize);
+        TextFormatter.fill(sb, leading, ' ');
+        appendValue(sb, value);
+        TextFormatter.fill(sb, padSize - leading, ' ');
+        return false;
+    }
+
+    /**
+     * Compares two rows numerically.
+     */
+    @Override
+    protected int compareRows(int row1, int row2) {
+        return Long.compare(getLong(row1), getLong(row2));
+    }
+
+    private void appendValue(StringBuilder sb, long value) {
+        NumericColumn.appendFormatted(sb, NumericColumn.negativeMagnitude(value), value < 0, 0, grouping);
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Base class for columns that store numbers in primitive arrays rather than as strings.  Values
+ * are formatted only when they are rendered: the auto-width of the column is calculated from
+ * digit counts, and digits are written straight into the output buffer.  Numeric columns are
+ * right aligned by default and may optionally group digits with a separator (e.g. 1,234,567).
+ * <p>
+ * Rows may also be empty, which is how {@link TextTableGenerator#addRow(List)} pads short
+ * columns.  String values added to the column are parsed; empty strings add empty rows.
+ */
+public abstract class NumericColumn extends TextTableColumn {
+    /**
+     * Character used to separate groups of digits when grouping is enabled.
+     */
+    public static final char GROUPING_SEPARATOR = ',';
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+    private BitSet emptyRows = new BitSet();
+    private boolean grouping;
+
+    private int maxValueWidth;
+    private boolean maxValueWidthDirty;
+
+    /**
+     * Constructor
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    protected NumericColumn(String name) {
+        super(name);
+        setAlignment(TextFormatter.Alignment.RIGHT);
+    }
+
+    /**
+     * Returns true if digits are grouped with {@link #GROUPING_SEPARATOR}.
+     */
+    public boolean isGrouping() {
+        return grouping;
+    }
+
+    /**
+     * Sets whether digits are grouped with {@link #GROUPING_SEPARATOR}.
+     */
+    public void setGrouping(boolean grouping) {
+        this.grouping = grouping;
+        formatChanged();
+    }
+
+    /**
+     * Returns true if the specified (zero based) row has no value.
+     */
+    public boolean isEmpty(int row) {
+        checkRow(row);
+        return emptyRows.get(row);
+    }
+
+    /**
+     * Adds an empty row to the column.
+     */
+    public void addEmpty() {
+        emptyRows.set(reserveRow());
+    }
+
+    @Override
+    public void clear() {
+        markModified();
+        size = 0;
+        emptyRows.clear();
+        maxValueWidth = 0;
+        maxValueWidthDirty = false;
+    }
+
+    /**
+     * Returns a read-only view of the formatted values of the column.
+     */
+    @Override
+    public List<String> getValues() {
+        return new FormattedValues();
+    }
+
+    @Override
+    public void setValues(List<String> values) {
+        clear();
+        addValues(values);
+    }
+
+    @Override
+    public void addValues(Collection<String> values) {
+        for (String value : values) {
+            addValue(value);
+        }
+    }
+
+    /**
+     * Parses and adds a single value to the existing column data.  Grouping separators in the
+     * value are ignored and an empty value adds an empty row.
+     *
+     * @throws NumberFormatException If the value is not a valid number.
+     */
+    @Override
+    public void addValue(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            addEmpty();
+        } else {
+            addParsedValue(trimmed.replace(String.valueOf(GROUPING_SEPARATOR), ""));
+        }
+    }
+
+    @Override
+    public int getNumRows() {
+        return size;
+    }
+
+    /**
+     * Pads the column with empty rows, without storing a value for each of them.
+     */
+    @Override
+    protected void padTo(int numRows) {
+        if (numRows > size) {
+            markRowsModified(size, numRows);
+            ensureCapacity(numRows);
+            emptyRows.set(size, numRows);
+            size = numRows;
+        }
+    }
+
+    /**
+     * Returns the formatted value for a particular (zero based) row index.
+     */
+    @Override
+    public String getRowValue(int row) {
+        checkRow(row);
+        if (emptyRows.get(row)) {
+            return EMPTY_VALUE;
+        }
+        StringBuilder sb = new StringBuilder();
+        appendValue(sb, row);
+        return sb.toString();
+    }
+
+    @Override
+    protected int getMaxValueWidth() {
+        if (maxValueWidthDirty) {
+            int max = 0;
+            for (int row = 0; row < size; row++) {
+                if (!emptyRows.get(row)) {
+                    max = Math.max(max, getValueWidth(row));
+                }
+            }
+            maxValueWidth = max;
+            maxValueWidthDirty = false;
+        }
+        return maxValueWidth;
+    }
+
+    /**
+     * Returns false: formatted numbers are made up of single-column ASCII characters.
+     */
+    @Override
+    protected boolean hasVariableWidthValues() {
+        return false;
+    }
+
+    @Override
+    protected boolean isEmptyRow(int row) {
+        return emptyRows.get(row);
+    }
+
+    @Override
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        if (emptyRows.get(row)) {
+            TextFormatter.fill(sb, width, ' ');
+            return false;
+        }
+        int valueWidth = getValueWidth(row);
+        if (valueWidth > width) {
+            return TextField.fit(sb, getRowValue(row), width, getAlignment(), ' ');
+        }
+        int padSize = width - valueWidth;
+        int leading = leadingPadding(getAlignment(), padSize);
+        TextFormatter.fill(sb, leading, ' ');
+        appendValue(sb, row);
+        TextFormatter.fill(sb, padSize - leading, ' ');
+        return false;
+    }
+
+    @Override
+    protected int getRowWidth(int row) {
+        return isEmpty(row) ? 0 : getValueWidth(row);
+    }
+
+    /**
+     * Compares two rows numerically.  Empty rows sort before all values.
+     */
+    @Override
+    protected int compareRows(int row1, int row2) {
+        boolean empty1 = isEmpty(row1);
+        boolean empty2 = isEmpty(row2);
+        if (empty1 || empty2) {
+            return Boolean.compare(empty2, empty1);
+        }
+        return compareValues(row1, row2);
+    }
+
+    /**
+     * Compares the (non-empty) values of two rows.  The default implementation parses the
+     * formatted values; subclasses override it to compare their stored values directly.
+     */
+    protected int compareValues(int row1, int row2) {
+        String separator = String.valueOf(GROUPING_SEPARATOR);
+        return Double.compare(Double.parseDouble(getRowValue(row1).replace(separator, "")),
+                Double.parseDouble(getRowValue(row2).replace(separator, "")));
+    }
+
+    /**
+     * Returns the number of characters needed to format the (non-empty) value of a row.
+     */
+    protected abstract int getValueWidth(int row);
+
+    /**
+     * Appends the formatted (non-empty) value of a row to a buffer.
+     */
+    protected abstract void appendValue(StringBuilder sb, int row);
+
+    /**
+     * Parses a value (with any grouping separators removed) and adds it to the column.
+     */
+    protected abstract void addParsedValue(String value);
+
+    /**
+     * Ensures the primitive storage of a subclass can hold at least the specified number of
+     * values.
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Reserves the next row in the column and returns its index.  Subclasses call this before
+     * storing a new value at the returned index.
+     */
+    protected int reserveRow() {
+        markRowsModified(size, size + 1);
+        ensureCapacity(size + 1);
+        return size++;
+    }
+
+    /**
+     * Called by subclasses after a value has been stored in a reserved row.
+     */
+    protected void valueAdded(int row) {
+        if (!maxValueWidthDirty) {
+            maxValueWidth = Math.max(maxValueWidth, getValueWidth(row));
+        }
+    }
+
+    /**
+     * Called by subclasses when a setting that affects how values are formatted changes.
+     */
+    protected void formatChanged() {
+        markModified();
+        maxValueWidthDirty = true;
+    }
+
+    protected void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + size);
+        }
+    }
+
+    /**
+     * Returns the number of characters needed to format a number.
+     *
+     * @param magnitude [in] The magnitude of the number negated (always &lt;= 0) so that the
+     *                  full range of long values can be handled.
+     * @param negative  [in] True if a minus sign is required.
+     * @param decimals  [in] The number of the least significant digits that are decimal places.
+     */
+    protected int formattedWidth(long magnitude, boolean negative, int decimals) {
+        return formattedWidth(magnitude, negative, decimals, grouping);
+    }
+
+    /**
+     * Appends a formatted number to a buffer, writing the digits directly.
+     * @see #formattedWidth(long, boolean, int)
+     */
+    protected void appendFormatted(StringBuilder sb, long magnitude, boolean negative, int decimals) {
+        appendFormatted(sb, magnitude, negative, decimals, grouping);
+    }
+
+    /**
+     * Returns the negated magnitude of a value (always &lt;= 0), as passed to
+     * {@link #formattedWidth(long, boolean, int)}, so that {@link Long#MIN_VALUE} can be
+     * formatted.
+     */
+    protected static long negativeMagnitude(long value) {
+        return (value < 0) ? value : -value;
+    }
+
+    /**
+     * Returns the number of characters needed to format a number.
+     *
+     * @param magnitude [in] The magnitude of the number negated (always &lt;= 0) so that the
+     *                  full range of long values can be handled.
+     * @param negative  [in] True if a minus sign is required.
+     * @param decimals  [in] The number of the least significant digits that are decimal places.
+     * @param grouping  [in] True if digits are grouped with {@link #GROUPING_SEPARATOR}.
+     */
+    protected static int formattedWidth(long magnitude, boolean negative, int decimals, boolean grouping) {
+        int digits = 1;
+        for (long n = magnitude; n <= -10; n /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, decimals + 1);
+        int width = digits;
+        if (decimals > 0) {
+            width++;
+        }
+        if (grouping) {
+            width += (digits - decimals - 1) / 3;
+        }
+        if (negative) {
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * Appends a formatted number to a buffer, writing the digits directly.
+     * @see #formattedWidth(long, boolean, int, boolean)
+     */
+    protected static void appendFormatted(StringBuilder sb, long magnitude, boolean negative, int decimals,
+            boolean grouping) {
+        int width = formattedWidth(magnitude, negative, decimals, grouping);
+        int start = sb.length();
+        sb.setLength(start + width);
+        int pos = start + width - 1;
+        long n = magnitude;
+        for (int i = 0; i < decimals; i++) {
+            sb.setCharAt(pos--, (char) ('0' - n % 10));
+            n /= 10;
+        }
+        if (decimals > 0) {
+            sb.setCharAt(pos--, '.');
+        }
+        int groupSize = 0;
+        do {
+            if (grouping && groupSize == 3) {
+                sb.setCharAt(pos--, GROUPING_SEPARATOR);
+                groupSize = 0;
+            }
+            sb.setCharAt(pos--, (char) ('0' - n % 10));
+            n /= 10;
+            groupSize++;
+        } while (n != 0);
+        if (negative) {
+            sb.setCharAt(pos, '-');
+        }
+    }
+
+    /**
+     * Returns the number of pad characters that precede a value in a cell.
+     *
+     * @param alignment [in] The alignment of the value in the cell.
+     * @param padSize   [in] The total number of pad characters in the cell.
+     */
+    protected static int leadingPadding(TextFormatter.Alignment alignment, int padSize) {
+        switch (alignment) {
+            case RIGHT:
+                return padSize;
+            case CENTER:
+                return padSize / 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Read-only list view that formats values on demand.
+     */
+    private class FormattedValues extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getRowValue(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
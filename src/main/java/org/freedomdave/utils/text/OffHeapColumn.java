@@ -0,0 +1,325 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A column that stores its values outside the Java heap, for very large tables.  Each value is
+ * stored as length-prefixed Latin-1 bytes (one byte per character) when it only contains
+ * Latin-1 characters, or as UTF-8 otherwise, in large direct byte buffers.  The heap holds
+ * only the buffers and one long per row locating its value, so tens of millions of values add
+ * little to the heap or to garbage collection.
+ * <p>
+ * The auto-width of the column is tracked as values are added, and values are rendered by
+ * copying characters straight from the buffers into the output; no String is created unless
+ * a value is requested with {@link #getRowValue(int)}.
+ * <p>
+ * The memory is freed when the column (or the table containing it) is closed, or cleared.
+ * The column must not be used after it is closed.
+ *
+ * @see TextTableGenerator#close()
+ */
+public class OffHeapColumn extends TextTableColumn implements AutoCloseable {
+    /**
+     * The default size of each buffer in bytes.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 16;
+    // Latin-1 values shorter than this have a single byte prefix holding their length
+    private static final int SHORT_LENGTH = 0x80;
+    private static final byte LATIN1_MARKER = (byte) 0x80;
+    private static final byte UTF8_MARKER = (byte) 0x81;
+    private static final ThreadLocal<StringBuilder> DECODED = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final int chunkBytes;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long[] locations = new long[INITIAL_CAPACITY];
+    private int size;
+    private int maxValueWidth;
+    private boolean variableWidthValues;
+    private long allocatedBytes;
+    private byte[] encoded = new byte[0];
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    public OffHeapColumn(String name) {
+        this(name, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name       [in] The name of the column (and header label if headers are activated.
+     * @param chunkBytes [in] The size of each buffer in bytes.  Values larger than this are
+     *                   stored in a buffer of their own.
+     */
+    public OffHeapColumn(String name, int chunkBytes) {
+        super(name);
+        if (chunkBytes <= 0) {
+            String msg = String.format("OffHeapColumn: invalid chunkBytes [%d] -> chunkBytes must be > 0", chunkBytes);
+            throw new IllegalArgumentException(msg);
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Returns the number of bytes of native memory allocated by the column.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Frees the native memory of the column.  The column must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        freeChunks();
+        locations = new long[0];
+        size = 0;
+        closed = true;
+    }
+
+    @Override
+    public void clear() {
+        checkOpen("clear");
+        markModified();
+        freeChunks();
+        locations = new long[INITIAL_CAPACITY];
+        size = 0;
+        maxValueWidth = 0;
+        variableWidthValues = false;
+    }
+
+    /**
+     * Returns a read-only view of the values of the column.  Each value is decoded as it is
+     * requested.
+     */
+    @Override
+    public List<String> getValues() {
+        return new DecodedValues();
+    }
+
+    @Override
+    public void setValues(List<String> values) {
+        clear();
+        addValues(values);
+    }
+
+    @Override
+    public void addValues(Collection<String> values) {
+        for (String value : values) {
+            addValue(value);
+        }
+    }
+
+    @Override
+    public void addValue(String value) {
+        checkOpen("addValue");
+        markRowsModified(size, size + 1);
+        int length = value.length();
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++) {
+            latin1 = value.charAt(i) < 0x100;
+        }
+        int width;
+        int byteLength;
+        ByteBuffer chunk;
+        if (latin1) {
+            width = length;
+            byteLength = length;
+            chunk = reserve((length < SHORT_LENGTH) ? 1 + length : 5 + length);
+            if (length < SHORT_LENGTH) {
+                chunk.put((byte) length);
+            } else {
+                chunk.put(LATIN1_MARKER).putInt(length);
+            }
+            for (int i = 0; i < length; i++) {
+                chunk.put((byte) value.charAt(i));
+            }
+        } else {
+            width = TextFormatter.displayWidth(value);
+            if (encoded.length < length * 3) {
+                encoded = new byte[length * 3];
+            }
+            byteLength = Utf8Output.encode(value, 0, length, encoded, 0);
+            chunk = reserve(9 + byteLength);
+            chunk.put(UTF8_MARKER).putInt(byteLength).putInt(width);
+            chunk.put(encoded, 0, byteLength);
+        }
+        maxValueWidth = Math.max(maxValueWidth, width);
+        variableWidthValues |= (width != length);
+    }
+
+    @Override
+    public int getNumRows() {
+        return size;
+    }
+
+    @Override
+    public String getRowValue(int row) {
+        checkRow(row);
+        StringBuilder sb = new StringBuilder();
+        decode(row, sb);
+        return sb.toString();
+    }
+
+    @Override
+    protected int getMaxValueWidth() {
+        return maxValueWidth;
+    }
+
+    @Override
+    protected boolean hasVariableWidthValues() {
+        return variableWidthValues;
+    }
+
+    @Override
+    protected int getRowWidth(int row) {
+        checkRow(row);
+        long location = locations[row];
+        ByteBuffer chunk = chunks.get((int) (location >>> 32));
+        int pos = (int) location;
+        byte prefix = chunk.get(pos);
+        if (prefix == UTF8_MARKER) {
+            return chunk.getInt(pos + 5);
+        }
+        return (prefix == LATIN1_MARKER) ? chunk.getInt(pos + 1) : prefix;
+    }
+
+    @Override
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        checkRow(row);
+        long location = locations[row];
+        ByteBuffer chunk = chunks.get((int) (location >>> 32));
+        int pos = (int) location;
+        byte prefix = chunk.get(pos);
+        if (prefix != UTF8_MARKER) {
+            int length = (prefix == LATIN1_MARKER) ? chunk.getInt(pos + 1) : prefix;
+            int start = pos + ((prefix == LATIN1_MARKER) ? 5 : 1);
+            if (length <= width) {
+                // every Latin-1 character is a single column wide, so the bytes are copied as is
+                int padSize = width - length;
+                int leading;
+                switch (getAlignment()) {
+                    case RIGHT:
+                        leading = padSize;
+                        break;
+                    case CENTER:
+                        leading = padSize / 2;
+                        break;
+                    default:
+                        leading = 0;
+                }
+                TextFormatter.fill(sb, leading, ' ');
+                for (int i = start, end = start + length; i < end; i++) {
+                    sb.append((char) (chunk.get(i) & 0xFF));
+                }
+                TextFormatter.fill(sb, padSize - leading, ' ');
+                return false;
+            }
+        }
+        StringBuilder text = DECODED.get();
+        text.setLength(0);
+        decode(row, text);
+        return TextField.fit(sb, text, width, getAlignment(), ' ');
+    }
+
+    /**
+     * Appends the decoded value of a row to a buffer.
+     */
+    private void decode(int row, StringBuilder sb) {
+        long location = locations[row];
+        ByteBuffer chunk = chunks.get((int) (location >>> 32));
+        int pos = (int) location;
+        byte prefix = chunk.get(pos);
+        if (prefix == UTF8_MARKER) {
+            int start = pos + 9;
+            Utf8Output.decode(chunk, start, start + chunk.getInt(pos + 1), sb);
+            return;
+        }
+        int length = (prefix == LATIN1_MARKER) ? chunk.getInt(pos + 1) : prefix;
+        int start = pos + ((prefix == LATIN1_MARKER) ? 5 : 1);
+        for (int i = start, end = start + length; i < end; i++) {
+            sb.append((char) (chunk.get(i) & 0xFF));
+        }
+    }
+
+    /**
+     * Reserves space for a value, recording its location as the next row, and returns the
+     * buffer positioned at the start of the space.
+     */
+    private ByteBuffer reserve(int bytes) {
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < bytes) {
+            chunk = ByteBuffer.allocateDirect(Math.max(chunkBytes, bytes));
+            chunks.add(chunk);
+            allocatedBytes += chunk.capacity();
+        }
+        if (size == locations.length) {
+            locations = Arrays.copyOf(locations, size * 2);
+        }
+        locations[size++] = ((long) (chunks.size() - 1) << 32) | chunk.position();
+        return chunk;
+    }
+
+    private void freeChunks() {
+        for (ByteBuffer chunk : chunks) {
+            DirectBuffers.free(chunk);
+        }
+        chunks.clear();
+        allocatedBytes = 0;
+    }
+
+    private void checkOpen(String method) {
+        if (closed) {
+            throw new IllegalStateException(method + ": column is closed");
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + size);
+        }
+    }
+
+    /**
+     * Read-only list view that decodes values on demand.
+     */
+    private class DecodedValues extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getRowValue(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+/**
+ * Receives the statistics of each table rendered by a {@link TextTableGenerator}.  Listeners
+ * can be used to feed render costs into a metrics system; {@link RenderStatsAggregator} is a
+ * simple in-library implementation.  Listeners may be called from any thread that renders a
+ * table and should return quickly.
+ *
+ * @see TextTableGenerator#setRenderListener(RenderListener)
+ */
+@FunctionalInterface
+public interface RenderListener {
+    /**
+     * Called after a table has been completely rendered.
+     *
+     * @param stats [in] The statistics of the render.
+     */
+    void renderCompleted(RenderStats stats);
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+/**
+ * The statistics of a single table render.  Times are split between calculating the column
+ * widths, rendering the rows and writing the rendered rows to the destination.
+ */
+public class RenderStats {
+    private final int rows;
+    private final int columns;
+    private final long outputChars;
+    private final long outputBytes;
+    private final long widthNanos;
+    private final long renderNanos;
+    private final long outputNanos;
+    private final long truncatedCells;
+    private final long peakBufferChars;
+
+    RenderStats(int rows, int columns, long outputChars, long outputBytes, long widthNanos, long renderNanos,
+                long outputNanos, long truncatedCells, long peakBufferChars) {
+        this.rows = rows;
+        this.columns = columns;
+        this.outputChars = outputChars;
+        this.outputBytes = outputBytes;
+        this.widthNanos = widthNanos;
+        this.renderNanos = renderNanos;
+        this.outputNanos = outputNanos;
+        this.truncatedCells = truncatedCells;
+        this.peakBufferChars = peakBufferChars;
+    }
+
+    /**
+     * Returns the number of data rows rendered (not including the header).
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in the table.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of characters written to the destination.
+     */
+    public long getOutputChars() {
+        return outputChars;
+    }
+
+    /**
+     * Returns the number of bytes written to the destination when the table was encoded by the
+     * generator ({@link TextTableGenerator#writeTo(java.io.OutputStream)}, a UTF-8
+     * {@link TextTableGenerator#generateTo(java.nio.file.Path)} and the like), or -1 when it was
+     * written as characters.
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * Returns the time spent calculating column widths, in nanoseconds.
+     */
+    public long getWidthNanos() {
+        return widthNanos;
+    }
+
+    /**
+     * Returns the time spent rendering rows, in nanoseconds.
+     */
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * Returns the time spent writing rendered rows to the destination, in nanoseconds.
+     */
+    public long getOutputNanos() {
+        return outputNanos;
+    }
+
+    /**
+     * Returns the total time of the render, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return widthNanos + renderNanos + outputNanos;
+    }
+
+    /**
+     * Returns the number of data cells whose values were truncated to fit their column.
+     */
+    public long getTruncatedCells() {
+        return truncatedCells;
+    }
+
+    /**
+     * Returns the largest number of characters held in the render buffer at one time.
+     */
+    public long getPeakBufferChars() {
+        return peakBufferChars;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rows=%d columns=%d chars=%d bytes=%d widthNanos=%d renderNanos=%d "
+                        + "outputNanos=%d truncatedCells=%d peakBufferChars=%d",
+                rows, columns, outputChars, outputBytes, widthNanos, renderNanos, outputNanos, truncatedCells,
+                peakBufferChars);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A render listener that aggregates the statistics of many renders: totals for each counter
+ * and power-of-two histograms of render time and row count.  It is safe to share between
+ * generators rendering on different threads, and the summary can be written to the log with
+ * {@link #logSummary()}.
+ */
+public class RenderStatsAggregator implements RenderListener {
+    private static final Logger log = LoggerFactory.getLogger(RenderStatsAggregator.class);
+
+    /**
+     * Number of histogram buckets.  Bucket <em>n</em> counts values in [2^(n-1), 2^n), bucket 0
+     * counts zero and the last bucket counts everything larger.
+     */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder outputChars = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder widthNanos = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder outputNanos = new LongAdder();
+    private final LongAdder truncatedCells = new LongAdder();
+    private final AtomicLongArray renderMicrosHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    private final AtomicLongArray rowsHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    @Override
+    public void renderCompleted(RenderStats stats) {
+        renders.increment();
+        rows.add(stats.getRows());
+        outputChars.add(stats.getOutputChars());
+        outputBytes.add(Math.max(0, stats.getOutputBytes()));
+        widthNanos.add(stats.getWidthNanos());
+        renderNanos.add(stats.getRenderNanos());
+        outputNanos.add(stats.getOutputNanos());
+        truncatedCells.add(stats.getTruncatedCells());
+        renderMicrosHistogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(stats.getTotalNanos())));
+        rowsHistogram.incrementAndGet(bucket(stats.getRows()));
+    }
+
+    /**
+     * Returns the number of renders recorded.
+     */
+    public long getRenderCount() {
+        return renders.sum();
+    }
+
+    /**
+     * Returns the total number of rows rendered.
+     */
+    public long getTotalRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Returns the total number of characters written.
+     */
+    public long getTotalOutputChars() {
+        return outputChars.sum();
+    }
+
+    /**
+     * Returns the total number of bytes written by renders that encoded their output.
+     * @see RenderStats#getOutputBytes()
+     */
+    public long getTotalOutputBytes() {
+        return outputBytes.sum();
+    }
+
+    /**
+     * Returns the total time spent calculating column widths, in nanoseconds.
+     */
+    public long getTotalWidthNanos() {
+        return widthNanos.sum();
+    }
+
+    /**
+     * Returns the total time spent rendering rows, in nanoseconds.
+     */
+    public long getTotalRenderNanos() {
+        return renderNanos.sum();
+    }
+
+    /**
+     * Returns the total time spent writing rendered rows, in nanoseconds.
+     */
+    public long getTotalOutputNanos() {
+        return outputNanos.sum();
+    }
+
+    /**
+     * Returns the total number of truncated cells.
+     */
+    public long getTotalTruncatedCells() {
+        return truncatedCells.sum();
+    }
+
+    /**
+     * Returns the histogram of total render times in microseconds.
+     * @see #HISTOGRAM_BUCKETS
+     */
+    public long[] getRenderMicrosHistogram() {
+        return snapshot(renderMicrosHistogram);
+    }
+
+    /**
+     * Returns the histogram of rows per render.
+     * @see #HISTOGRAM_BUCKETS
+     */
+    public long[] getRowsHistogram() {
+        return snapshot(rowsHistogram);
+    }
+
+    /**
+     * Writes a summary of the aggregated statistics to the log.
+     */
+    public void logSummary() {
+        if (log.isInfoEnabled()) {
+            log.info(toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("renders=%d rows=%d chars=%d bytes=%d widthMillis=%d renderMillis=%d "
+                        + "outputMillis=%d truncatedCells=%d",
+                getRenderCount(), getTotalRows(), getTotalOutputChars(), getTotalOutputBytes(),
+                TimeUnit.NANOSECONDS.toMillis(getTotalWidthNanos()),
+                TimeUnit.NANOSECONDS.toMillis(getTotalRenderNanos()),
+                TimeUnit.NANOSECONDS.toMillis(getTotalOutputNanos()),
+                getTotalTruncatedCells()));
+        appendHistogram(sb, " renderMicros=", getRenderMicrosHistogram());
+        appendHistogram(sb, " rows=", getRowsHistogram());
+        return sb.toString();
+    }
+
+    private static int bucket(long value) {
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(0, value));
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    private static long[] snapshot(AtomicLongArray histogram) {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Appends the non-empty buckets of a histogram as {upper bound: count, ...}.
+     */
+    private static void appendHistogram(StringBuilder sb, String label, long[] counts) {
+        sb.append(label).append('{');
+        boolean first = true;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append((i == counts.length - 1) ? "max" : ("<" + (1L << i))).append(": ").append(counts[i]);
+                first = false;
+            }
+        }
+        sb.append('}');
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A column for mostly empty data (e.g. a wide matrix of flags).  Only the non-empty values are
+ * stored, together with a sorted array of the rows they belong to; empty values only increase
+ * the row count.  Adding an empty value, or padding the column to the length of the table
+ * when a row is added, takes constant time.  Output is identical to a plain
+ * {@link TextTableColumn} holding the same values.
+ */
+public class SparseColumn extends TextTableColumn {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] rows = new int[INITIAL_CAPACITY];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int count;
+    private int size;
+    private int maxValueWidth;
+    private boolean variableWidthValues;
+
+    /**
+     * Constructor
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    public SparseColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * Returns the number of non-empty values in the column.
+     */
+    public int getNumValues() {
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        markModified();
+        rows = new int[INITIAL_CAPACITY];
+        values = new String[INITIAL_CAPACITY];
+        count = 0;
+        size = 0;
+        maxValueWidth = 0;
+        variableWidthValues = false;
+    }
+
+    /**
+     * Returns a read-only view of the values of the column.
+     */
+    @Override
+    public List<String> getValues() {
+        return new SparseValues();
+    }
+
+    @Override
+    public void setValues(List<String> values) {
+        clear();
+        addValues(values);
+    }
+
+    @Override
+    public void addValues(Collection<String> values) {
+        for (String value : values) {
+            addValue(value);
+        }
+    }
+
+    @Override
+    public void addValue(String value) {
+        markRowsModified(size, size + 1);
+        if (!value.isEmpty()) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            rows[count] = size;
+            values[count++] = value;
+            int width = TextFormatter.displayWidth(value);
+            maxValueWidth = Math.max(maxValueWidth, width);
+            variableWidthValues |= (width != value.length());
+        }
+        size++;
+    }
+
+    @Override
+    public int getNumRows() {
+        return size;
+    }
+
+    @Override
+    public String getRowValue(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + size);
+        }
+        int index = Arrays.binarySearch(rows, 0, count, row);
+        return (index >= 0) ? values[index] : EMPTY_VALUE;
+    }
+
+    @Override
+    protected int getMaxValueWidth() {
+        return maxValueWidth;
+    }
+
+    @Override
+    protected boolean hasVariableWidthValues() {
+        return variableWidthValues;
+    }
+
+    @Override
+    protected boolean isEmptyRow(int row) {
+        return Arrays.binarySearch(rows, 0, count, row) < 0;
+    }
+
+    @Override
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        int index = Arrays.binarySearch(rows, 0, count, row);
+        if (index < 0) {
+            TextFormatter.fill(sb, width, ' ');
+            return false;
+        }
+        return TextField.fit(sb, values[index], width, getAlignment(), ' ');
+    }
+
+    @Override
+    protected void padTo(int numRows) {
+        if (numRows > size) {
+            markRowsModified(size, numRows);
+            size = numRows;
+        }
+    }
+
+    /**
+     * Read-only list view that fills in the empty values.
+     */
+    private class SparseValues extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getRowValue(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A column that moves its values to a temporary file once they use more than a threshold of
+ * heap, so tables larger than the heap can still be built and rendered.  Until the threshold is
+ * reached values are held in memory as usual.  After that every value is appended to the file
+ * as a record holding its UTF-8 length, display width and bytes, and only a long offset per row
+ * stays on the heap.  The auto-width of the column is tracked in memory as values are added.
+ * <p>
+ * Values are read back through a buffer that is refilled with a single positional read when a
+ * row outside it is requested, so rendering the rows in order reads the file sequentially in
+ * blocks.  Read buffers are pooled by the column: a read takes the buffer already holding its
+ * row if there is one, so the threads of a parallel render each keep reading their own range
+ * of rows sequentially rather than evicting each other's blocks.  At most one buffer per
+ * processor is kept between reads, and the pool is released when the file is deleted.  The
+ * column must not be modified while it is being rendered.
+ * <p>
+ * The temporary file is deleted when the column (or the table containing it) is closed, or
+ * cleared; it is opened with DELETE_ON_CLOSE, so on Unix it never appears in the directory at
+ * all.  The column must not be used after it is closed.
+ *
+ * @see TextTableGenerator#close()
+ */
+public class SpillingColumn extends TextTableColumn implements AutoCloseable {
+    /**
+     * The default threshold of estimated heap use, in bytes, beyond which values are spilled.
+     */
+    public static final long DEFAULT_THRESHOLD_BYTES = 64L << 20;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int READ_BUFFER_BYTES = 64 << 10;
+    private static final int MAX_POOLED_READERS = Runtime.getRuntime().availableProcessors();
+    private static final int INITIAL_CAPACITY = 16;
+    // Record header: UTF-8 length then display width
+    private static final int HEADER_BYTES = 8;
+    // Rough heap cost of a String beyond its characters
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final long thresholdBytes;
+    private final Path directory;
+
+    private List<String> memoryValues = new ArrayList<>();
+    private long memoryBytes;
+    private int maxValueWidth;
+    private boolean variableWidthValues;
+
+    // Spilled state: the file, the offset of each row's record and the buffers used to access it
+    private Path file;
+    private FileChannel channel;
+    private long[] offsets;
+    private int size;
+    private long fileBytes;
+    private ByteBuffer writeBuffer;
+    private ArrayDeque<Reader> readers;
+    private byte[] encoded = new byte[0];
+    private boolean closed;
+
+    /**
+     * Constructor.  Spills values to the default temporary directory once they use more than
+     * {@link #DEFAULT_THRESHOLD_BYTES} of heap.
+     *
+     * @param name [in] The name of the column (and header label if headers are activated.
+     */
+    public SpillingColumn(String name) {
+        this(name, DEFAULT_THRESHOLD_BYTES, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name           [in] The name of the column (and header label if headers are activated.
+     * @param thresholdBytes [in] The estimated heap use, in bytes, beyond which values are spilled.
+     * @param directory      [in] The directory the temporary file is created in, or null for the
+     *                       default temporary directory.
+     */
+    public SpillingColumn(String name, long thresholdBytes, Path directory) {
+        super(name);
+        if (thresholdBytes < 0) {
+            String msg = String.format("SpillingColumn: invalid thresholdBytes [%d] -> thresholdBytes must be >= 0",
+                    thresholdBytes);
+            throw new IllegalArgumentException(msg);
+        }
+        this.thresholdBytes = thresholdBytes;
+        this.directory = directory;
+    }
+
+    /**
+     * Returns true if the values of the column have been moved to a temporary file.
+     */
+    public synchronized boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Deletes the temporary file, if any.  The column must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        memoryValues = new ArrayList<>();
+        deleteFile();
+    }
+
+    @Override
+    public synchronized void clear() {
+        checkOpen("clear");
+        markModified();
+        memoryValues = new ArrayList<>();
+        memoryBytes = 0;
+        maxValueWidth = 0;
+        variableWidthValues = false;
+        deleteFile();
+    }
+
+    /**
+     * Returns a read-only view of the values of the column.  Spilled values are read from the
+     * file as they are requested.
+     */
+    @Override
+    public List<String> getValues() {
+        return new SpilledValues();
+    }
+
+    @Override
+    public void setValues(List<String> values) {
+        clear();
+        addValues(values);
+    }
+
+    @Override
+    public void addValues(Collection<String> values) {
+        for (String value : values) {
+            addValue(value);
+        }
+    }
+
+    @Override
+    public synchronized void addValue(String value) {
+        checkOpen("addValue");
+        int row = getNumRows();
+        markRowsModified(row, row + 1);
+        int width = TextFormatter.displayWidth(value);
+        maxValueWidth = Math.max(maxValueWidth, width);
+        variableWidthValues |= (width != value.length());
+        try {
+            if (file != null) {
+                append(value, width);
+                return;
+            }
+            memoryValues.add(value);
+            memoryBytes += STRING_OVERHEAD_BYTES + 2L * value.length();
+            if (memoryBytes > thresholdBytes) {
+                spill();
+            }
+        } catch (IOException e) {
+            Path target = (file != null) ? file : directory;
+            throw new UncheckedIOException(String.format("addValue: failed to write to [%s]", target), e);
+        }
+    }
+
+    @Override
+    public synchronized int getNumRows() {
+        return (file != null) ? size : memoryValues.size();
+    }
+
+    @Override
+    public String getRowValue(int row) {
+        synchronized (this) {
+            if (file == null) {
+                return memoryValues.get(row);
+            }
+        }
+        Reader reader = read(row);
+        try {
+            ByteBuffer record = reader.buffer;
+            int length = record.getInt(record.position());
+            return new String(record.array(), record.arrayOffset() + record.position() + HEADER_BYTES, length,
+                    StandardCharsets.UTF_8);
+        } finally {
+            release(reader);
+        }
+    }
+
+    @Override
+    protected int getMaxValueWidth() {
+        return maxValueWidth;
+    }
+
+    @Override
+    protected boolean hasVariableWidthValues() {
+        return variableWidthValues;
+    }
+
+    @Override
+    protected int getRowWidth(int row) {
+        synchronized (this) {
+            if (file == null) {
+                return TextFormatter.displayWidth(memoryValues.get(row));
+            }
+        }
+        Reader reader = read(row);
+        try {
+            ByteBuffer record = reader.buffer;
+            return record.getInt(record.position() + 4);
+        } finally {
+            release(reader);
+        }
+    }
+
+    @Override
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        synchronized (this) {
+            if (file == null) {
+                return TextField.fit(sb, memoryValues.get(row), width, getAlignment(), ' ');
+            }
+        }
+        Reader reader = read(row);
+        try {
+            ByteBuffer record = reader.buffer;
+            int start = record.position() + HEADER_BYTES;
+            reader.decoded.setLength(0);
+            Utf8Output.decode(record, start, start + record.getInt(record.position()), reader.decoded);
+            return TextField.fit(sb, reader.decoded, width, getAlignment(), ' ');
+        } finally {
+            release(reader);
+        }
+    }
+
+    /**
+     * Creates the temporary file and moves the values held in memory to it.  The column only
+     * switches to the file once every value has been written; if anything fails the file is
+     * deleted and the values stay in memory.
+     */
+    private void spill() throws IOException {
+        Path path = (directory == null) ? Files.createTempFile("text-table-", ".spill")
+                : Files.createTempFile(directory, "text-table-", ".spill");
+        FileChannel opened = null;
+        try {
+            opened = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            // append() writes through these fields; they are ignored until file is set
+            channel = opened;
+            offsets = new long[Math.max(INITIAL_CAPACITY, memoryValues.size() * 2)];
+            size = 0;
+            fileBytes = 0;
+            writeBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+            for (String value : memoryValues) {
+                append(value, TextFormatter.displayWidth(value));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel = null;
+            offsets = null;
+            writeBuffer = null;
+            size = 0;
+            fileBytes = 0;
+            try {
+                if (opened != null) {
+                    opened.close();
+                }
+                Files.deleteIfExists(path);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        file = path;
+        // a new pool per file, so buffers holding an old file are never reused
+        readers = new ArrayDeque<>();
+        memoryValues = new ArrayList<>();
+        memoryBytes = 0;
+    }
+
+    /**
+     * Appends a record for a value to the file, through the write buffer.
+     */
+    private void append(String value, int width) throws IOException {
+        int length = value.length();
+        if (encoded.length < length * 3) {
+            encoded = new byte[length * 3];
+        }
+        int byteLength = Utf8Output.encode(value, 0, length, encoded, 0);
+        if (writeBuffer.remaining() < HEADER_BYTES + byteLength) {
+            flush();
+            if (writeBuffer.capacity() < HEADER_BYTES + byteLength) {
+                writeBuffer = ByteBuffer.allocate(HEADER_BYTES + byteLength);
+            }
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size++] = fileBytes + writeBuffer.position();
+        writeBuffer.putInt(byteLength).putInt(width).put(encoded, 0, byteLength);
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            fileBytes += channel.write(writeBuffer, fileBytes);
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * Takes a reader from the pool with its buffer positioned at the record of a row, refilling
+     * the buffer from the file if the record is not already in it.  The reader must be handed
+     * back with {@link #release(Reader)}.
+     */
+    private Reader read(int row) {
+        Path path;
+        FileChannel source;
+        long offset;
+        long end;
+        Reader reader;
+        synchronized (this) {
+            checkRow(row);
+            path = file;
+            source = channel;
+            offset = offsets[row];
+            if (offset >= fileBytes) {
+                // the record is still in the write buffer
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(String.format("read: failed to write to [%s]", file), e);
+                }
+            }
+            end = fileBytes;
+            reader = acquire(offset);
+        }
+        try {
+            reader.read(source, offset, end);
+        } catch (IOException e) {
+            release(reader);
+            throw new UncheckedIOException(String.format("read: failed to read from [%s]", path), e);
+        }
+        return reader;
+    }
+
+    /**
+     * Takes the pooled reader whose buffer holds an offset, or else the least recently used
+     * one, or a new reader if the pool is empty.
+     */
+    private Reader acquire(long offset) {
+        for (Iterator<Reader> it = readers.iterator(); it.hasNext(); ) {
+            Reader reader = it.next();
+            if (reader.holds(offset)) {
+                it.remove();
+                return reader;
+            }
+        }
+        Reader reader = readers.pollLast();
+        return (reader != null) ? reader : new Reader(readers);
+    }
+
+    /**
+     * Returns a reader to the pool it was taken from, unless the pool is full, has been released
+     * since, or the reader's buffer grew to hold an oversized record.
+     */
+    private synchronized void release(Reader reader) {
+        if (reader.pool == readers && readers.size() < MAX_POOLED_READERS
+                && reader.buffer.capacity() == READ_BUFFER_BYTES) {
+            readers.push(reader);
+        }
+    }
+
+    private void deleteFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("close: failed to delete [%s]", file), e);
+        } finally {
+            file = null;
+            channel = null;
+            offsets = null;
+            writeBuffer = null;
+            readers = null;
+            size = 0;
+        }
+    }
+
+    private void checkOpen(String method) {
+        if (closed) {
+            throw new IllegalStateException(method + ": column is closed");
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + size);
+        }
+    }
+
+    /**
+     * A pooled read buffer and the range of the file it holds.
+     */
+    private static final class Reader {
+        private final ArrayDeque<Reader> pool;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private long start;
+        private final StringBuilder decoded = new StringBuilder();
+
+        Reader(ArrayDeque<Reader> pool) {
+            this.pool = pool;
+            buffer.limit(0);
+        }
+
+        /**
+         * Returns true if the buffer holds at least the header of the record at an offset.
+         */
+        boolean holds(long offset) {
+            return offset >= start && offset + HEADER_BYTES <= start + buffer.limit();
+        }
+
+        /**
+         * Positions the buffer at the record at an offset, refilling it from the file if the
+         * record is not already in it.
+         *
+         * @param channel [in] The file.
+         * @param offset  [in] The offset of the record.
+         * @param end     [in] The number of bytes written to the file.
+         */
+        void read(FileChannel channel, long offset, long end) throws IOException {
+            long bufferEnd = start + buffer.limit();
+            if (offset < start || offset + HEADER_BYTES > bufferEnd
+                    || offset + HEADER_BYTES + buffer.getInt((int) (offset - start)) > bufferEnd) {
+                fill(channel, offset, end, HEADER_BYTES);
+                int recordBytes = HEADER_BYTES + buffer.getInt(0);
+                if (recordBytes > buffer.limit()) {
+                    fill(channel, offset, end, recordBytes);
+                }
+            }
+            buffer.position((int) (offset - start));
+        }
+
+        /**
+         * Reads the file from an offset into the buffer, as far as the buffer or the file allows
+         * and at least the specified number of bytes.
+         */
+        private void fill(FileChannel channel, long offset, long end, int minBytes) throws IOException {
+            if (buffer.capacity() < minBytes) {
+                buffer = ByteBuffer.allocate(minBytes);
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - offset));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            start = offset;
+        }
+    }
+
+    /**
+     * Read-only list view that reads values on demand.
+     */
+    private class SpilledValues extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getRowValue(index);
+        }
+
+        @Override
+        public int size() {
+            return getNumRows();
+        }
+    }
+}
@@ -131,12 +131,75 @@ public class TextField {
      * method always returns a string that is exactly the length of the field width.
      */
     public String getFittedText() {
-        if (text.length() <= width) {
-            return TextFormatter.align(text, width, padChar, alignment);
+        StringBuilder sb = new StringBuilder(width);
+        appendFittedText(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the fitted text value of the field to a buffer.
+     * @see #getFittedText()
+     */
+    public void appendFittedText(StringBuilder sb) {
+        fit(sb, text, width, alignment, padChar);
+    }
+
+    /**
+     * Appends text fitted to a field of the specified width to a buffer, without creating a
+     * TextField or any intermediate strings.  Text shorter than the field is aligned and padded
+     * to the full width; longer text is truncated and marked with ellipsis.
+     *
+     * @param sb        [in] The buffer the fitted text is appended to.
+     * @param text      [in] The text value within the field.
+     * @param width     [in] The width of the field.
+     * @param alignment [in] The alignment for the text in the field.
+     * @param padChar   [in] The character used to pad the unused parts of the field.
+     * @return True if the text had to be truncated to fit the field.
+     */
+    public static boolean fit(StringBuilder sb, CharSequence text, int width, TextFormatter.Alignment alignment,
+                              char padChar) {
+        int textWidth = TextFormatter.displayWidth(text);
+        if (textWidth <= width) {
+            TextFormatter.align(sb, text, textWidth, width, padChar, alignment);
+            return false;
         }
+        int kept = Math.max(0, width - ELLIPSIS.length());
+        int end = DisplayWidth.prefixEnd(text, 0, text.length(), kept);
+        sb.append(text, 0, end);
+        // a wide character that straddles the ellipsis is dropped and replaced with padding
+        TextFormatter.fill(sb, kept - DisplayWidth.of(text, 0, end), padChar);
+        sb.append(ELLIPSIS, 0, width - kept);
+        return true;
+    }
 
-        String truncated = text.substring(0, width - ELLIPSIS.length());
-        return (truncated + ELLIPSIS);
+    /**
+     * Writes text fitted to a field of the specified width into a character array.
+     *
+     * @param dst       [in] The array the fitted text is written to.
+     * @param offset    [in] The position in the array at which the field starts.
+     * @param text      [in] The text value within the field.
+     * @param width     [in] The width of the field.
+     * @param alignment [in] The alignment for the text in the field.
+     * @param padChar   [in] The character used to pad the unused parts of the field.
+     * @return The position in the array immediately after the field.  This is offset + width
+     *         unless the text contains wide or combining characters.
+     * @see #fit(StringBuilder, CharSequence, int, TextFormatter.Alignment, char)
+     */
+    public static int fit(char[] dst, int offset, CharSequence text, int width, TextFormatter.Alignment alignment,
+                          char padChar) {
+        if (TextFormatter.displayWidth(text) <= width) {
+            return TextFormatter.align(dst, offset, text, width, padChar, alignment);
+        }
+        int kept = Math.max(0, width - ELLIPSIS.length());
+        int end = DisplayWidth.prefixEnd(text, 0, text.length(), kept);
+        for (int i = 0; i < end; i++) {
+            dst[offset++] = text.charAt(i);
+        }
+        for (int i = DisplayWidth.of(text, 0, end); i < kept; i++) {
+            dst[offset++] = padChar;
+        }
+        ELLIPSIS.getChars(0, width - kept, dst, offset);
+        return offset + width - kept;
     }
 
     @Override
@@ -15,10 +15,17 @@
 
 package org.freedomdave.utils.text;
 
+import java.util.Arrays;
+
 /**
  * This class provides some simple fixed-width text field formatting methods.
  */
 public class TextFormatter {
+    // Length of the pre-filled runs shared by the fill methods; longer fills copy several runs.
+    private static final int FILL_RUN_LENGTH = 256;
+    private static final char[] SPACE_RUN = newRun(' ');
+    private static final char[] DASH_RUN = newRun('-');
+    private static final char[] EQUALS_RUN = newRun('=');
 
     public enum Alignment {
         LEFT,
@@ -26,6 +33,19 @@ public class TextFormatter {
         CENTER
     }
 
+    /**
+     * Returns the number of columns text occupies when displayed in a terminal.  East Asian
+     * wide and fullwidth characters take two columns and combining marks take none, so this can
+     * differ from the length of the text.  Text made up only of ASCII and Latin-1 characters is
+     * measured with a single quick pass.
+     *
+     * @param text [in] The text to measure.
+     * @return The display width of the text.
+     */
+    public static int displayWidth(CharSequence text) {
+        return DisplayWidth.of(text, 0, text.length());
+    }
+
     /**
      * Generates a fixed-width text field using a specified fill character.
      *
@@ -34,13 +54,58 @@ public class TextFormatter {
      * @return Fixed width text field filled with the specified character.
      */
     public static String fill(int width, char fillChar) {
-        StringBuilder sb = new StringBuilder(width);
-        for (int i = 0; i < width; i++) {
-            sb.append(fillChar);
+        char[] run = cachedRun(fillChar);
+        if (run != null && width <= FILL_RUN_LENGTH) {
+            return new String(run, 0, Math.max(0, width));
         }
+        StringBuilder sb = new StringBuilder(width);
+        fill(sb, width, fillChar);
         return sb.toString();
     }
 
+    /**
+     * Appends a run of a fill character to a buffer.
+     *
+     * @param sb       [in] The buffer to append to.
+     * @param width    [in] The number of characters to append.
+     * @param fillChar [in] Character to fill with.
+     */
+    public static void fill(StringBuilder sb, int width, char fillChar) {
+        char[] run = cachedRun(fillChar);
+        if (run == null) {
+            for (int i = 0; i < width; i++) {
+                sb.append(fillChar);
+            }
+            return;
+        }
+        for (int remaining = width; remaining > 0; remaining -= FILL_RUN_LENGTH) {
+            sb.append(run, 0, Math.min(remaining, FILL_RUN_LENGTH));
+        }
+    }
+
+    /**
+     * Returns the shared pre-filled run for a fill character, or null if the character is not
+     * cached.  The runs are never modified so they are safe to share between threads.
+     */
+    private static char[] cachedRun(char fillChar) {
+        switch (fillChar) {
+            case ' ':
+                return SPACE_RUN;
+            case '-':
+                return DASH_RUN;
+            case '=':
+                return EQUALS_RUN;
+            default:
+                return null;
+        }
+    }
+
+    private static char[] newRun(char fillChar) {
+        char[] run = new char[FILL_RUN_LENGTH];
+        Arrays.fill(run, fillChar);
+        return run;
+    }
+
     /**
      * Centers text within a fixed width text field
      *
@@ -86,23 +151,82 @@ public class TextFormatter {
      */
     public static String align(String text, int width, char padChar, Alignment align) {
         StringBuilder sb = new StringBuilder(width);
-        int padSize = width - text.length();
+        align(sb, text, width, padChar, align);
+        return sb.toString();
+    }
+
+    /**
+     * Justifies text within a fixed width text field, appending the field to a buffer.  No
+     * intermediate objects are created.
+     *
+     * @param sb      [in] The buffer the field is appended to.
+     * @param text    [in] The text within the field.
+     * @param width   [in] The total width of the field.
+     * @param padChar [in] The character to use when padding text field to specified width.
+     * @param align   [in] The desired alignment for the text in the field (i.e. left, right, or center)
+     */
+    public static void align(StringBuilder sb, CharSequence text, int width, char padChar, Alignment align) {
+        align(sb, text, displayWidth(text), width, padChar, align);
+    }
+
+    /**
+     * Justifies text of a known display width within a fixed width text field.
+     */
+    static void align(StringBuilder sb, CharSequence text, int textWidth, int width, char padChar, Alignment align) {
+        int padSize = width - textWidth;
         switch (align) {
             case RIGHT:
-                sb.append(fill(padSize, padChar));
+                fill(sb, padSize, padChar);
                 sb.append(text);
                 break;
             case LEFT:
                 sb.append(text);
-                sb.append(fill(padSize, padChar));
+                fill(sb, padSize, padChar);
                 break;
             case CENTER: {
-                int leading = (width - text.length()) / 2;
-                sb.append(fill(leading, ' '));
+                int leading = padSize / 2;
+                fill(sb, leading, ' ');
                 sb.append(text);
-                sb.append(fill(width - leading - text.length(), padChar));
+                fill(sb, padSize - leading, padChar);
             }
         }
-        return sb.toString();
+    }
+
+    /**
+     * Justifies text within a fixed width text field, writing the field into a character array.
+     * The text must not be wider than the field.  Wide characters take two columns but only
+     * one element of the array, so the field may be shorter in characters than its width.
+     *
+     * @param dst     [in] The array the field is written to.
+     * @param offset  [in] The position in the array at which the field starts.
+     * @param text    [in] The text within the field.
+     * @param width   [in] The total width of the field.
+     * @param padChar [in] The character to use when padding text field to specified width.
+     * @param align   [in] The desired alignment for the text in the field (i.e. left, right, or center)
+     * @return The position in the array immediately after the field.
+     */
+    public static int align(char[] dst, int offset, CharSequence text, int width, char padChar, Alignment align) {
+        int length = text.length();
+        int padSize = Math.max(0, width - displayWidth(text));
+        int start = offset;
+        switch (align) {
+            case RIGHT:
+                Arrays.fill(dst, offset, offset + padSize, padChar);
+                start = offset + padSize;
+                break;
+            case LEFT:
+                Arrays.fill(dst, offset + length, offset + length + padSize, padChar);
+                break;
+            case CENTER: {
+                int leading = padSize / 2;
+                Arrays.fill(dst, offset, offset + leading, ' ');
+                Arrays.fill(dst, offset + leading + length, offset + length + padSize, padChar);
+                start = offset + leading;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            dst[start + i] = text.charAt(i);
+        }
+        return offset + length + padSize;
     }
 }
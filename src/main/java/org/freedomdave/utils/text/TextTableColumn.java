@@ -15,9 +15,13 @@
 
 package org.freedomdave.utils.text;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * This class encapsulates a column within a text table.  A column has a name (header label),
@@ -35,10 +39,34 @@ public class TextTableColumn {
      */
     public static final String EMPTY_VALUE = "";
 
+    // Rows are grouped into blocks of 2^ROW_BLOCK_SHIFT rows for change tracking
+    static final int ROW_BLOCK_SHIFT = 8;
+
     private String name;
-    private List<String> values;
+    private TrackedValues values;
     private TextFormatter.Alignment alignment = TextFormatter.Alignment.LEFT;
     private int width = AUTO_WIDTH;
+    private WidthPolicy widthPolicy = WidthPolicy.EXACT;
+
+    // Width calculated by a non-exact width policy, and the version it was calculated for
+    private int policyWidth;
+    private long policyWidthVersion = -1;
+
+    // Length of the longest value, maintained as values are added.  When a value that may have
+    // been the longest is replaced or removed the maximum is flagged dirty and rescanned lazily.
+    private int maxValueLength;
+    private boolean maxValueLengthDirty;
+
+    // Number of values whose display width differs from their length, recounted with the maximum
+    private int variableWidthValues;
+
+    // Incremented whenever the values or settings of the column change
+    private long version;
+
+    // Version of the last change that affected every row, and of the last change to each
+    // block of rows, so a render can tell which blocks of rows are out of date
+    private long allRowsVersion;
+    private long[] blockVersions = new long[0];
 
     /**
      * Constructor
@@ -46,19 +74,22 @@ public class TextTableColumn {
      * @param name [in] The name of the column (and header label if headers are activated.
      */
     public TextTableColumn(String name) {
-        this.name = name;
-        this.values = new ArrayList<>();
+        this(name, new ArrayList<>());
     }
 
     /**
      * Constructor
      *
      * @param name [in] The name of the column (and header label if headers are activated.
-     * @param values [in] An array of string values for the column.
+     * @param values [in] An array of string values for the column.  The list is used as is
+     *               rather than copied, so values added to or removed from it later appear in
+     *               the column.  Values replaced in place are only picked up once the size of
+     *               the list changes or it is passed to {@link #setValues(List)} again; changes
+     *               made through {@link #getValues()} are always tracked.
      */
     public TextTableColumn(String name, List<String> values) {
         this.name = name;
-        this.values = values;
+        trackValues(values);
     }
 
     /**
@@ -73,6 +104,7 @@ public class TextTableColumn {
      */
     public void setName(String name) {
         this.name = name;
+        markModified();
     }
 
     /**
@@ -83,17 +115,21 @@ public class TextTableColumn {
     }
 
     /**
-     * Returns the current data values for the column.
+     * Returns the current data values for the column.  The returned list is a live view of the
+     * column data; changes made through it are reflected in the calculated width of the column.
      */
     public List<String> getValues() {
         return values;
     }
 
     /**
-     * Sets the data values for the column.  Replaces any existing values.
+     * Sets the data values for the column.  Replaces any existing values.  The list is used as
+     * is rather than copied; passing the same list again rescans it after values were replaced
+     * in place.
+     * @see #TextTableColumn(String, List)
      */
     public void setValues(List<String> values) {
-        this.values = values;
+        trackValues(values);
     }
 
     /**
@@ -139,6 +175,7 @@ public class TextTableColumn {
      */
     public void setAlignment(TextFormatter.Alignment alignment) {
         this.alignment = alignment;
+        markModified();
     }
 
     /**
@@ -149,15 +186,47 @@ public class TextTableColumn {
     public int getWidth() {
         int currentWidth = width;
         if (width == AUTO_WIDTH) {
-            int max = name.length();
-            for (String value : values) {
-                max = Math.max(max, value.length());
+            if (widthPolicy == WidthPolicy.EXACT) {
+                currentWidth = Math.max(TextFormatter.displayWidth(name), getMaxValueWidth());
+            } else {
+                long currentVersion = getVersion();
+                if (currentVersion != policyWidthVersion) {
+                    policyWidth = widthPolicy.width(this, null);
+                    policyWidthVersion = currentVersion;
+                }
+                currentWidth = policyWidth;
             }
-            currentWidth = max;
         }
         return currentWidth;
     }
 
+    /**
+     * Returns the policy used to calculate the width of the column when it is AUTO_WIDTH.
+     */
+    public WidthPolicy getWidthPolicy() {
+        return widthPolicy;
+    }
+
+    /**
+     * Sets the policy used to calculate the width of the column when it is AUTO_WIDTH.  The
+     * default is {@link WidthPolicy#EXACT}.
+     */
+    public void setWidthPolicy(WidthPolicy widthPolicy) {
+        if (widthPolicy == null) {
+            String msg = "setWidthPolicy: invalid widthPolicy [null] -> widthPolicy must not be null";
+            throw new IllegalArgumentException(msg);
+        }
+        this.widthPolicy = widthPolicy;
+        markModified();
+    }
+
+    /**
+     * Returns true if the width of the column is calculated from its values (AUTO_WIDTH).
+     */
+    public boolean isAutoWidth() {
+        return width == AUTO_WIDTH;
+    }
+
     /**
      * Sets the width of the column.  Default is AUTO_WIDTH but can be set to another fixed value.
      * Values that are longer than a fixed width will be truncated with ellipses (...) when
@@ -165,5 +234,286 @@ public class TextTableColumn {
      */
     public void setWidth(int width) {
         this.width = width;
+        markModified();
+    }
+
+    /**
+     * Returns the version of the column.  The version changes whenever the values or settings
+     * (name, alignment, width) of the column change, so it can be used to tell whether anything
+     * derived from the column is out of date.
+     */
+    public long getVersion() {
+        values.checkForExternalChanges();
+        return version;
+    }
+
+    /**
+     * Returns the width of the widest data value in the column, used to calculate the width of
+     * AUTO_WIDTH columns.  The value is maintained incrementally and only rescanned when the
+     * previous maximum may have been removed.  Subclasses that store their values differently
+     * override this along with the value accessors.
+     */
+    protected int getMaxValueWidth() {
+        values.checkForExternalChanges();
+        if (maxValueLengthDirty) {
+            int max = 0;
+            int variable = 0;
+            for (String value : values.backing) {
+                max = Math.max(max, TextFormatter.displayWidth(value));
+                variable += variableWidth(value);
+            }
+            maxValueLength = max;
+            variableWidthValues = variable;
+            maxValueLengthDirty = false;
+        }
+        return maxValueLength;
+    }
+
+    /**
+     * Returns true if the display width of any value differs from its length in characters,
+     * because it contains wide, combining or other zero-width characters.  Rows of a table with
+     * such values are not a fixed number of characters, so they cannot be rendered in parallel
+     * into fixed positions.  Subclasses that store their values differently override this.
+     */
+    protected boolean hasVariableWidthValues() {
+        getMaxValueWidth();
+        return variableWidthValues > 0;
+    }
+
+    /**
+     * Returns true if values cannot be added to the column, as for columns whose values come
+     * from somewhere else.  {@link TextTableGenerator#addRow(List)} checks this before changing
+     * any column, so a row is never added to only some of the columns of a table.
+     */
+    protected boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Returns true if a row is known to be empty, so the renderer can copy a prebuilt blank cell
+     * instead of calling {@link #appendFittedValue(StringBuilder, int, int)}.  The default
+     * implementation returns false; columns that track empty rows cheaply override it.
+     *
+     * @param row [in] The (zero based) row index.
+     */
+    protected boolean isEmptyRow(int row) {
+        return false;
+    }
+
+    /**
+     * Appends the value of a row, fitted to the specified width, to a buffer.  The default
+     * implementation fits the value returned by {@link #getRowValue(int)}; subclasses may
+     * override it to render their values without creating a String.
+     *
+     * @param sb    [in] The buffer the fitted value is appended to.
+     * @param row   [in] The (zero based) row index.
+     * @param width [in] The width the value is fitted to.
+     * @return True if the value had to be truncated to fit the width.
+     */
+    protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+        return TextField.fit(sb, getRowValue(row), width, alignment, ' ');
+    }
+
+    /**
+     * Returns the display width of the value of a row.  Used to calculate the auto-width of a
+     * {@link TextTableView}, which only covers some of the rows.
+     *
+     * @param row [in] The (zero based) row index.
+     * @return The number of columns the value occupies.
+     */
+    protected int getRowWidth(int row) {
+        return TextFormatter.displayWidth(getRowValue(row));
+    }
+
+    /**
+     * Compares the values of two rows, used to sort a {@link TextTableView}.  The default
+     * implementation compares the string values; subclasses override it to compare their values
+     * in a more natural order (e.g. numerically).
+     *
+     * @param row1 [in] The (zero based) index of the first row.
+     * @param row2 [in] The (zero based) index of the second row.
+     * @return A negative number, zero or a positive number if the value of the first row is less
+     *         than, equal to or greater than the value of the second.
+     */
+    protected int compareRows(int row1, int row2) {
+        return getRowValue(row1).compareTo(getRowValue(row2));
+    }
+
+    /**
+     * Adds empty values to the end of the column until it has at least the specified number of
+     * rows.  Used by {@link TextTableGenerator#addRow(List)} to keep the rows of a table aligned.
+     * Subclasses that can record empty rows without storing them override this to take constant
+     * time.
+     *
+     * @param numRows [in] The minimum number of rows.
+     */
+    protected void padTo(int numRows) {
+        int missing = numRows - getNumRows();
+        if (missing > 0) {
+            addValues(Collections.nCopies(missing, EMPTY_VALUE));
+        }
+    }
+
+    /**
+     * Returns the version of a block of rows of the column.  It changes whenever a value in the
+     * block, or anything that affects every row of the column, changes.
+     *
+     * @param block [in] The (zero based) block index; a block holds 2^ROW_BLOCK_SHIFT rows.
+     */
+    long getBlockVersion(int block) {
+        // brings the version up to date with changes made outside the column
+        getVersion();
+        long blockVersion = (block < blockVersions.length) ? blockVersions[block] : 0;
+        return Math.max(allRowsVersion, blockVersion);
+    }
+
+    /**
+     * Called by subclasses when the values or settings of the column change.  Every row of the
+     * column is treated as changed; use {@link #markRowsModified(int, int)} when only some rows
+     * change.
+     * @see #getVersion()
+     */
+    protected void markModified() {
+        version++;
+        allRowsVersion = version;
+    }
+
+    /**
+     * Called by subclasses when the values of a range of rows change (including rows appended
+     * to the end of the column).  Cached renders of the other rows remain valid.
+     *
+     * @param fromRow [in] The (zero based) index of the first changed row.
+     * @param toRow   [in] The index after the last changed row.
+     */
+    protected void markRowsModified(int fromRow, int toRow) {
+        version++;
+        if (fromRow >= toRow) {
+            return;
+        }
+        int first = fromRow >>> ROW_BLOCK_SHIFT;
+        int last = (toRow - 1) >>> ROW_BLOCK_SHIFT;
+        if (last >= blockVersions.length) {
+            blockVersions = Arrays.copyOf(blockVersions, Math.max(last + 1, blockVersions.length * 2));
+        }
+        Arrays.fill(blockVersions, first, last + 1, version);
+    }
+
+    private void trackValues(List<String> values) {
+        this.values = new TrackedValues(values);
+        this.maxValueLength = 0;
+        this.maxValueLengthDirty = !values.isEmpty();
+        this.variableWidthValues = 0;
+        markModified();
+    }
+
+    private static int variableWidth(String value) {
+        return (TextFormatter.displayWidth(value) != value.length()) ? 1 : 0;
+    }
+
+    private void valueAdded(String value) {
+        maxValueLength = Math.max(maxValueLength, TextFormatter.displayWidth(value));
+    }
+
+    private void valueRemoved(String value) {
+        if (TextFormatter.displayWidth(value) >= maxValueLength) {
+            maxValueLengthDirty = true;
+        }
+    }
+
+    /**
+     * List view over the column values that keeps the column's maximum value length and version
+     * up to date.  The wrapped list belongs to the caller, so changes made directly to it are
+     * detected by comparing sizes; the whole column is then treated as changed and the maximum
+     * is rescanned.
+     */
+    private class TrackedValues extends AbstractList<String> implements RandomAccess {
+        private final List<String> backing;
+        private int expectedSize;
+
+        TrackedValues(List<String> backing) {
+            this.backing = backing;
+            this.expectedSize = backing.size();
+        }
+
+        void checkForExternalChanges() {
+            if (backing.size() != expectedSize) {
+                expectedSize = backing.size();
+                maxValueLengthDirty = true;
+                markModified();
+            }
+        }
+
+        @Override
+        public String get(int index) {
+            return backing.get(index);
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+
+        @Override
+        public String set(int index, String value) {
+            checkForExternalChanges();
+            String previous = backing.set(index, value);
+            markRowsModified(index, index + 1);
+            variableWidthValues += variableWidth(value) - variableWidth(previous);
+            int valueWidth = TextFormatter.displayWidth(value);
+            if (valueWidth >= maxValueLength) {
+                maxValueLength = valueWidth;
+            } else {
+                valueRemoved(previous);
+            }
+            return previous;
+        }
+
+        @Override
+        public void add(int index, String value) {
+            checkForExternalChanges();
+            backing.add(index, value);
+            expectedSize++;
+            modCount++;
+            if (index == expectedSize - 1) {
+                markRowsModified(index, index + 1);
+            } else {
+                markModified();
+            }
+            variableWidthValues += variableWidth(value);
+            valueAdded(value);
+        }
+
+        @Override
+        public String remove(int index) {
+            checkForExternalChanges();
+            String previous = backing.remove(index);
+            expectedSize--;
+            modCount++;
+            markModified();
+            variableWidthValues -= variableWidth(previous);
+            valueRemoved(previous);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            backing.clear();
+            expectedSize = 0;
+            modCount++;
+            markModified();
+            maxValueLength = 0;
+            maxValueLengthDirty = false;
+            variableWidthValues = 0;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForExternalChanges();
+            backing.subList(fromIndex, toIndex).clear();
+            expectedSize = backing.size();
+            modCount++;
+            markModified();
+            maxValueLengthDirty = true;
+        }
     }
 }
@@ -18,8 +18,28 @@ package org.freedomdave.utils.text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 /**
  * This class generates text tables for tabular data. The data may be provided by row or by
@@ -29,7 +49,7 @@ import java.util.List;
  * <p><em>The API is designed to be simple with reasonable defaults for most usages.  A
  * table can be generated in just a few lines of code.</em></p>
  */
-public class TextTableGenerator {
+public class TextTableGenerator implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(TextTableGenerator.class);
 
     protected static final char CELL_CONNECTOR_CHAR = '+';
@@ -40,17 +60,51 @@ public class TextTableGenerator {
     protected static final String EMPTY_CELL = "";
     protected static final String NEWLINE = "\n";
     protected static final int DEFAULT_PADDING = 2;
+    protected static final int DEFAULT_PARALLEL_THRESHOLD = 10_000;
+
+    // Number of rows rendered by a single fork-join task
+    private static final int PARALLEL_BATCH_ROWS = 1024;
+    // Size of the encoded batches written by generateTo
+    private static final int FILE_BATCH_BYTES = 1 << 20;
 
     protected int padding = DEFAULT_PADDING;
 
     private boolean printHeaders = true;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private RenderListener renderListener;
+
+    // Column widths of the last render, reused while the versions of all columns are unchanged
+    private int[] cachedWidths;
+    private long[] cachedVersions;
+
+    // Row count of the table and the column versions it was counted at.  Kept up to date by
+    // addRow so adding a row does not recount every column.
+    private int cachedNumRows;
+    private long[] numRowsVersions;
+
+    // Rendered empty cells for the most recent column widths
+    private volatile BlankCells blankCells;
+
+    // Output of the last generate() and the blocks of rows it was built from, or null while
+    // output caching is disabled
+    private OutputCache outputCache;
     private List<TextTableColumn> columns;
 
+    // Set when a subclass overrides one of the generate* hooks, in which case the streaming
+    // render path delegates to the overridden hook for that part of the table.
+    private final boolean customHorizontalLine;
+    private final boolean customHeader;
+    private final boolean customRow;
+
     /**
      * Constructor
      */
     public TextTableGenerator() {
         this.columns = new ArrayList<>();
+        boolean customCell = overridesHook("generateCell", TextField.class);
+        this.customHorizontalLine = overridesHook("generateHorizontalLine");
+        this.customHeader = customCell || overridesHook("generateHeader");
+        this.customRow = customCell || overridesHook("generateRow", int.class);
     }
 
     /**
@@ -96,6 +150,147 @@ public class TextTableGenerator {
         this.padding = padding;
     }
 
+    /**
+     * Returns the minimum number of rows for which {@link #generateParallel()} renders rows in
+     * parallel.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the minimum number of rows for which {@link #generateParallel()} renders rows in
+     * parallel.  Smaller tables are generated sequentially as the cost of splitting the work
+     * outweighs the gain.
+     * @param parallelThreshold [in] Minimum number of rows to render in parallel.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            String msg = String.format("setParallelThreshold: invalid threshold [%d] -> threshold must be >= 0",
+                    parallelThreshold);
+            throw new IllegalArgumentException(msg);
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the listener notified with the statistics of each render, or null if none is set.
+     */
+    public RenderListener getRenderListener() {
+        return renderListener;
+    }
+
+    /**
+     * Sets a listener to be notified with the statistics of each render (row, character and
+     * byte counts, time spent calculating widths, rendering rows and writing output, truncated
+     * cells and peak buffer size).  Statistics are only collected while a listener is set.
+     * @param renderListener [in] The listener, or null to stop collecting statistics.
+     */
+    public void setRenderListener(RenderListener renderListener) {
+        this.renderListener = renderListener;
+    }
+
+    /**
+     * Returns the maximum number of characters of rendered output kept between calls to
+     * {@link #generate()}, or 0 if output caching is disabled.
+     */
+    public long getOutputCacheCapacity() {
+        return (outputCache == null) ? 0 : outputCache.capacity;
+    }
+
+    /**
+     * Sets the maximum number of characters of rendered output kept between calls to
+     * {@link #generate()}.  While caching is enabled an unchanged table is returned without
+     * being rendered again, and when only some rows change only the blocks of rows containing
+     * them are re-rendered.  Any change to the column widths or padding discards the whole
+     * cache.  The capacity covers the cached blocks and a copy of the whole table.  Blocks are
+     * cached from the top of the table until the capacity is reached, so a table larger than
+     * the cache reuses the same leading blocks on every call and renders the rest.  Caching is
+     * disabled by default.
+     * <p>
+     * Calls to {@link #generate()} are serialized while caching is enabled.
+     * @param capacity [in] Maximum number of cached characters, or 0 to disable caching.
+     */
+    public void setOutputCacheCapacity(long capacity) {
+        if (capacity < 0) {
+            String msg = String.format("setOutputCacheCapacity: invalid capacity [%d] -> capacity must be >= 0",
+                    capacity);
+            throw new IllegalArgumentException(msg);
+        }
+        this.outputCache = (capacity == 0) ? null : new OutputCache(capacity);
+    }
+
+    /**
+     * Compiles the current columns and settings of the table into an immutable layout that can
+     * render any number of tables with the same schema.  Each column's current width (including
+     * the calculated width of AUTO_WIDTH columns) becomes its fixed width in the layout.
+     *
+     * @return The compiled layout.
+     */
+    public TextTableLayout compileLayout() {
+        return new TextTableLayout(columns, getPadding(), printHeaders);
+    }
+
+    /**
+     * Returns a view of all the rows of the table in their original order.  Views can be
+     * sorted and filtered without copying or changing the columns of the table.
+     *
+     * @return The view.
+     * @see TextTableView
+     */
+    public TextTableView view() {
+        return new TextTableView(this);
+    }
+
+    /**
+     * Sets the width policy of every column currently in the table.
+     * @see TextTableColumn#setWidthPolicy(WidthPolicy)
+     */
+    public void setWidthPolicy(WidthPolicy widthPolicy) {
+        for (TextTableColumn column : columns) {
+            column.setWidthPolicy(widthPolicy);
+        }
+    }
+
+    /**
+     * Closes any columns of the table that hold resources, such as {@link OffHeapColumn},
+     * freeing them immediately.  Tables of ordinary columns do not need to be closed.  Every
+     * column is closed even if some fail; the first failure is thrown with the others added
+     * to it as suppressed exceptions.
+     */
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for (TextTableColumn column : columns) {
+            if (column instanceof AutoCloseable) {
+                RuntimeException e = closeColumn(column);
+                if (failure == null) {
+                    failure = e;
+                } else if (e != null) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes a column, returning the exception it failed with, if any.
+     */
+    private static RuntimeException closeColumn(TextTableColumn column) {
+        try {
+            ((AutoCloseable) column).close();
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        } catch (Exception e) {
+            String msg = String.format("close: column [%s] failed to close", column.getName());
+            return new IllegalStateException(msg, e);
+        }
+    }
+
     /**
      * Returns column object by index
      *
@@ -134,6 +329,13 @@ public class TextTableGenerator {
         columns.add(col);
     }
 
+    /**
+     * Returns the number of columns in the table.
+     */
+    public int getNumColumns() {
+        return columns.size();
+    }
+
     /**
      * Returns the number of rows in the table.  The returned value is the number of rows of the largest column.
      * The returned value also cooresponds to the number of rows in the printed table.
@@ -141,10 +343,25 @@ public class TextTableGenerator {
      * @return The number of rows in the table.
      */
     public int getNumRows() {
+        int count = columns.size();
+        if (numRowsVersions != null && numRowsVersions.length == count) {
+            int i = 0;
+            while (i < count && columns.get(i).getVersion() == numRowsVersions[i]) {
+                i++;
+            }
+            if (i == count) {
+                return cachedNumRows;
+            }
+        }
         int max = 0;
-        for (TextTableColumn column : columns) {
+        long[] versions = new long[count];
+        for (int i = 0; i < count; i++) {
+            TextTableColumn column = columns.get(i);
+            versions[i] = column.getVersion();
             max = Math.max(max, column.getNumRows());
         }
+        numRowsVersions = versions;
+        cachedNumRows = max;
         return max;
     }
 
@@ -153,18 +370,28 @@ public class TextTableGenerator {
      *
      * @param row [in] A list of row values.  If there are more columns in the table than row values, empty cells
      *            will be added to the columns to fill the entire row.
+     * @throws UnsupportedOperationException If a column the row has a value for is read-only,
+     *                                       such as an {@link ExtractorColumn}.  The table is
+     *                                       left unchanged.
      */
     public void addRow(List<String> row) {
         int numRows = getNumRows();
         int numCols = Math.min(row.size(), columns.size());
         for (int i = 0; i < numCols; i++) {
             TextTableColumn col = columns.get(i);
-            if (col.getNumRows() < numRows) {
-                while (col.getNumRows() < numRows){
-                    col.addValue(EMPTY_CELL);
-                }
+            if (col.isReadOnly()) {
+                String msg = String.format("addRow: column [%s] is read-only", col.getName());
+                throw new UnsupportedOperationException(msg);
             }
+        }
+        for (int i = 0; i < numCols; i++) {
+            TextTableColumn col = columns.get(i);
+            col.padTo(numRows);
             col.addValue(row.get(i));
+            numRowsVersions[i] = col.getVersion();
+        }
+        if (numCols > 0) {
+            cachedNumRows = numRows + 1;
         }
     }
 
@@ -172,20 +399,354 @@ public class TextTableGenerator {
      * This method generates the entire table based on the current values and settings.
      */
     public String generate() {
+        OutputCache cache = outputCache;
+        if (cache != null && !usesRenderHooks()) {
+            return generateCached(cache);
+        }
         StringBuilder sb = new StringBuilder();
-        int rows = getNumRows();
-        if (printHeaders) {
-            sb.append(generateHorizontalLine());
-            sb.append(generateHeader());
+        try {
+            generate(sb);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
         }
-        sb.append(generateHorizontalLine());
-        for (int i = 0; i < rows; i++) {
-            sb.append(generateRow(i));
+        return sb.toString();
+    }
+
+    /**
+     * Generates the entire table based on the current values and settings, writing it to the
+     * specified destination one row at a time.  Only a single rendered row is buffered at any
+     * point, so arbitrarily large tables can be written to a file or socket.
+     *
+     * @param out [in] The destination the table is written to.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public void generate(Appendable out) throws IOException {
+        render(out, null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Generates a single page of the table: the header (if enabled), the specified rows and the
+     * surrounding horizontal lines.  Column widths are those of the whole table, so every page
+     * lines up, and are only recalculated when a column changes.  The cost of a page is
+     * proportional to the number of rows on it rather than the size of the table.
+     *
+     * @param firstRow [in] The (zero based) index of the first row on the page.
+     * @param rowCount [in] The maximum number of rows on the page.
+     * @return The rendered page.
+     */
+    public String generatePage(int firstRow, int rowCount) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generatePage(firstRow, rowCount, sb);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
         }
-        sb.append(generateHorizontalLine());
         return sb.toString();
     }
 
+    /**
+     * Generates a single page of the table, writing it to the specified destination.
+     *
+     * @param firstRow [in] The (zero based) index of the first row on the page.
+     * @param rowCount [in] The maximum number of rows on the page.
+     * @param out      [in] The destination the page is written to.
+     * @throws IOException If the destination cannot be written to.
+     * @see #generatePage(int, int)
+     */
+    public void generatePage(int firstRow, int rowCount, Appendable out) throws IOException {
+        if (firstRow < 0 || rowCount < 0) {
+            String msg = String.format("generatePage: invalid page [%d, %d] -> first row and row count must be >= 0",
+                    firstRow, rowCount);
+            throw new IllegalArgumentException(msg);
+        }
+        render(out, null, firstRow, (int) Math.min(Integer.MAX_VALUE, (long) firstRow + rowCount));
+    }
+
+    /**
+     * Returns an iterator over the pages of the table.  Each page is rendered when it is
+     * requested, so the iterator reflects rows added while iterating.  An empty table has a
+     * single page with no rows.
+     *
+     * @param pageSize [in] The maximum number of rows on each page.
+     * @return An iterator of rendered pages.
+     * @see #generatePage(int, int)
+     */
+    public Iterator<String> pages(int pageSize) {
+        if (pageSize <= 0) {
+            String msg = String.format("pages: invalid page size [%d] -> page size must be > 0", pageSize);
+            throw new IllegalArgumentException(msg);
+        }
+        return new Iterator<String>() {
+            private int nextRow;
+
+            @Override
+            public boolean hasNext() {
+                return nextRow == 0 || nextRow < getNumRows();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String page = generatePage(nextRow, pageSize);
+                nextRow += pageSize;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Generates a table from a sequence of rows without storing the rows in the table's
+     * columns.  The columns of this generator define the layout (names, alignments and widths)
+     * and rows are written to the destination as they are read from the iterator.
+     * <p>
+     * Fixed width columns keep their width.  The width of an AUTO_WIDTH column is the widest
+     * of its header, any values already held by the column (which may be used to hint at the
+     * expected width) and the values in the first <em>lookAhead</em> rows, as measured by the
+     * column's {@link WidthPolicy}.  Values in later rows that do not fit are truncated with
+     * ellipsis.  A policy with a minimum width allows tables to be streamed with no
+     * look-ahead.  The generate* hooks are not used as they render from the values held by
+     * the columns.
+     *
+     * @param rows      [in] The rows of the table.  Missing values are rendered as empty cells.
+     * @param lookAhead [in] The maximum number of rows buffered to calculate column widths.
+     * @param out       [in] The destination the table is written to.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public void generate(Iterator<? extends List<String>> rows, int lookAhead, Appendable out) throws IOException {
+        if (lookAhead < 0) {
+            String msg = String.format("generate: invalid lookAhead [%d] -> lookAhead must be >= 0", lookAhead);
+            throw new IllegalArgumentException(msg);
+        }
+        boolean timed = (renderListener != null);
+        long start = timed ? System.nanoTime() : 0;
+        List<List<String>> window = new ArrayList<>();
+        while (window.size() < lookAhead && rows.hasNext()) {
+            window.add(rows.next());
+        }
+
+        int[] widths = getColumnWidths().clone();
+        int[] valueWidths = new int[window.size()];
+        for (int i = 0; i < widths.length; i++) {
+            TextTableColumn col = columns.get(i);
+            if (col.isAutoWidth()) {
+                for (int row = 0; row < valueWidths.length; row++) {
+                    List<String> values = window.get(row);
+                    valueWidths[row] = (i < values.size()) ? TextFormatter.displayWidth(values.get(i)) : 0;
+                }
+                widths[i] = col.getWidthPolicy().width(widths[i], valueWidths);
+            }
+        }
+
+        long widthsDone = timed ? System.nanoTime() : 0;
+
+        RowWriter writer = new RowWriter(out, timed);
+        int rendered = 0;
+        long truncated = 0;
+        String line = horizontalLine(widths, false);
+        writeTableTop(writer, widths, line, false);
+        for (int i = 0; i < window.size(); i++, rendered++) {
+            truncated += appendValues(writer.row(), window.set(i, null), widths);
+            writer.flush();
+        }
+        window.clear();
+        for (; rows.hasNext(); rendered++) {
+            truncated += appendValues(writer.row(), rows.next(), widths);
+            writer.flush();
+        }
+        writer.line(line);
+        if (timed) {
+            renderCompleted(writer, rendered, widths.length, truncated, start, widthsDone);
+        }
+    }
+
+    /**
+     * Generates a table from a stream of rows without storing the rows in the table's columns.
+     *
+     * @param rows      [in] The rows of the table.
+     * @param lookAhead [in] The maximum number of rows buffered to calculate column widths.
+     * @param out       [in] The destination the table is written to.
+     * @throws IOException If the destination cannot be written to.
+     * @see #generate(Iterator, int, Appendable)
+     */
+    public void generate(Stream<String[]> rows, int lookAhead, Appendable out) throws IOException {
+        generate(rows.map(Arrays::asList).iterator(), lookAhead, out);
+    }
+
+    /**
+     * Writes the entire table to the specified writer.  The writer is flushed but not closed.
+     *
+     * @param writer [in] The writer the table is written to.
+     * @throws IOException If the writer cannot be written to.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        generate(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the entire table to a stream as UTF-8, without building it as a String first.
+     * Rows are encoded into a reusable per-thread byte buffer, copying ASCII characters byte for
+     * byte, and the horizontal line is only encoded once.  The stream is not flushed or closed.
+     *
+     * @param stream [in] The stream the table is written to.
+     * @return The number of bytes written.
+     * @throws IOException If the stream cannot be written to.
+     */
+    public long writeTo(OutputStream stream) throws IOException {
+        Utf8Output output = Utf8Output.acquire(stream);
+        try {
+            generate(output);
+            return output.finish();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Writes the entire table to a byte buffer as UTF-8, starting at its current position.  The
+     * buffer can be reused for the next table, so steady-state rendering creates no garbage.
+     *
+     * @param buffer [in] The buffer the table is written to.
+     * @return The number of bytes written.
+     * @throws java.nio.BufferOverflowException If the table does not fit in the remaining space
+     *                                          of the buffer.
+     */
+    public int writeTo(ByteBuffer buffer) {
+        Utf8Output output = Utf8Output.acquire(buffer);
+        try {
+            generate(output);
+            return (int) output.finish();
+        } catch (IOException e) {
+            // ByteBuffer never throws IOException
+            throw new UncheckedIOException(e);
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Writes the entire table to a UTF-8 encoded file.
+     * @see #generateTo(Path, Charset)
+     */
+    public void generateTo(Path path) throws IOException {
+        generateTo(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the entire table to a file, replacing any existing content.  Rows are encoded
+     * straight into a reusable byte buffer and written to the file's channel in large batches,
+     * so the table is never held in memory as a String.  UTF-8 is encoded directly, as by
+     * {@link #writeTo(OutputStream)}; other character sets go through a CharsetEncoder.
+     *
+     * @param path    [in] The file the table is written to.
+     * @param charset [in] The character set used to encode the table.
+     * @throws IOException If the file cannot be written.
+     */
+    public void generateTo(Path path, Charset charset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                Utf8Output output = Utf8Output.open(channel, FILE_BATCH_BYTES);
+                try {
+                    generate(output);
+                    output.finish();
+                } finally {
+                    output.release();
+                }
+            } else {
+                writeTo(Channels.newWriter(channel, charset.newEncoder(), FILE_BATCH_BYTES));
+            }
+        }
+    }
+
+    /**
+     * Generates the entire table using the common fork-join pool to render rows in parallel.
+     * @see #generateParallel(ForkJoinPool)
+     */
+    public String generateParallel() {
+        return generateParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates the entire table, rendering ranges of rows in parallel.  Once the column widths
+     * are known every row has the same length, so each task renders its rows directly into
+     * their position in a single preallocated buffer.  Tables with fewer rows than the parallel
+     * threshold, or generators that override the generateRow or generateCell hooks, are
+     * generated sequentially.  So are tables containing wide or combining characters, whose rows
+     * are not all the same number of characters; the columns track whether they hold any.
+     *
+     * @param pool [in] The pool used to render the rows.
+     * @return The generated table, identical to the result of {@link #generate()}.
+     */
+    public String generateParallel(ForkJoinPool pool) {
+        int rows = getNumRows();
+        if (rows < parallelThreshold || customRow || hasVariableWidthValues()) {
+            return generate();
+        }
+
+        boolean timed = (renderListener != null);
+        long start = timed ? System.nanoTime() : 0;
+        int[] widths = getColumnWidths();
+        long widthsDone = timed ? System.nanoTime() : 0;
+
+        String bottom = horizontalLine(widths, true);
+        StringBuilder top = new StringBuilder();
+        try {
+            writeTableTop(new RowWriter(top, false), widths, bottom, true);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+
+        // each cell starts with a vertical line, and the row ends with one followed by a newline
+        int rowLength = 1 + NEWLINE.length();
+        for (int width : widths) {
+            rowLength += 1 + width + 2 * getPadding();
+        }
+
+        long tableLength = top.length() + (long) rows * rowLength + bottom.length();
+        if (tableLength > Integer.MAX_VALUE - 8) {
+            String msg = String.format("generateParallel: table of [%d] chars is too large for a String, "
+                    + "use generate(Appendable)", tableLength);
+            throw new IllegalStateException(msg);
+        }
+        char[] table = new char[(int) tableLength];
+        top.getChars(0, top.length(), table, 0);
+        LongAdder truncated = new LongAdder();
+        try {
+            pool.invoke(new RenderRowsTask(table, top.length(), rowLength, widths, 0, rows, truncated));
+        } catch (RowLengthMismatch e) {
+            // a subclass column that does not report its variable width values
+            return generate();
+        }
+        bottom.getChars(0, bottom.length(), table, table.length - bottom.length());
+        long rendered = timed ? System.nanoTime() : 0;
+        String result = new String(table);
+        if (timed) {
+            long end = System.nanoTime();
+            renderCompleted(new RenderStats(rows, widths.length, table.length, -1, widthsDone - start,
+                    rendered - widthsDone, end - rendered, truncated.sum(), table.length));
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if any column has values whose display width differs from their length, in
+     * which case rows are not a fixed number of characters.
+     */
+    private boolean hasVariableWidthValues() {
+        for (TextTableColumn column : columns) {
+            if (column.hasVariableWidthValues()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Generates a horizontal line for the table, taking into account each of the columns in the
      * table and their widths.
@@ -248,4 +809,570 @@ public class TextTableGenerator {
         sb.append(NEWLINE);
         return sb.toString();
     }
+
+    /**
+     * Renders the rows in [firstRow, lastRow) of the table, or of a view of the table when one
+     * is given, surrounded by the header and horizontal lines.
+     */
+    void render(Appendable out, TextTableView view, int firstRow, int lastRow) throws IOException {
+        boolean timed = (renderListener != null);
+        long start = timed ? System.nanoTime() : 0;
+        int[] widths = (view == null) ? getColumnWidths() : view.getColumnWidths();
+        int rowCount = (view == null) ? getNumRows() : view.getNumRows();
+        int rows = Math.max(0, Math.min(lastRow, rowCount) - firstRow);
+        long widthsDone = timed ? System.nanoTime() : 0;
+
+        RowWriter writer = new RowWriter(out, timed);
+        long truncated = 0;
+        String line = horizontalLine(widths, true);
+        writeTableTop(writer, widths, line, true);
+        for (int i = firstRow; i < firstRow + rows; i++) {
+            truncated += appendRow(writer.row(), (view == null) ? i : view.getTableRow(i), widths);
+            writer.flush();
+        }
+        writer.line(line);
+        if (timed) {
+            renderCompleted(writer, rows, widths.length, truncated, start, widthsDone);
+        }
+    }
+
+    /**
+     * Generates the table, reusing the cached output when no column has changed and otherwise
+     * the cached blocks of rows whose versions are unchanged.
+     */
+    private String generateCached(OutputCache cache) {
+        // the cache is shared by every caller of generate()
+        synchronized (cache) {
+            boolean timed = (renderListener != null);
+            long start = timed ? System.nanoTime() : 0;
+            int count = columns.size();
+            long[] versions = new long[count];
+            for (int i = 0; i < count; i++) {
+                versions[i] = columns.get(i).getVersion();
+            }
+            if (cache.table != null && cache.isLayout(columns, padding) && Arrays.equals(versions, cache.versions)) {
+                if (timed) {
+                    long widthNanos = System.nanoTime() - start;
+                    renderCompleted(new RenderStats(cache.rows, count, cache.table.length(), -1, widthNanos, 0, 0,
+                            cache.truncated, cache.table.length()));
+                }
+                return cache.table;
+            }
+            int[] widths = getColumnWidths();
+            int rows = getNumRows();
+            long widthsDone = timed ? System.nanoTime() : 0;
+            if (!cache.isLayout(columns, padding) || !Arrays.equals(widths, cache.widths)) {
+                cache.reset(columns, widths, padding);
+            }
+
+            StringBuilder sb = new StringBuilder();
+            String line = horizontalLine(widths, false);
+            if (printHeaders) {
+                sb.append(line);
+                appendHeader(sb, widths, false);
+            }
+            sb.append(line);
+            long truncated = 0;
+            int block = 0;
+            for (int first = 0; first < rows; first += OutputCache.BLOCK_ROWS, block++) {
+                int blockRows = Math.min(OutputCache.BLOCK_ROWS, rows - first);
+                long[] blockVersions = new long[count];
+                for (int i = 0; i < count; i++) {
+                    blockVersions[i] = columns.get(i).getBlockVersion(block);
+                }
+                CachedBlock cached = cache.blocks.get(block);
+                if (cached != null && cached.rows == blockRows && Arrays.equals(cached.versions, blockVersions)) {
+                    sb.append(cached.text);
+                    truncated += cached.truncated;
+                    continue;
+                }
+                int blockStart = sb.length();
+                int blockTruncated = 0;
+                for (int row = first; row < first + blockRows; row++) {
+                    blockTruncated += appendRow(sb, row, widths);
+                }
+                truncated += blockTruncated;
+                cache.put(block, sb, blockStart, blockVersions, blockRows, blockTruncated);
+            }
+            sb.append(line);
+            String table = sb.toString();
+            cache.completed(table, versions, rows, truncated, block);
+            if (timed) {
+                long renderNanos = System.nanoTime() - widthsDone;
+                renderCompleted(new RenderStats(rows, count, table.length(), -1, widthsDone - start, renderNanos, 0,
+                        truncated, table.length()));
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Returns the current width of each column in the table.  The widths are cached and only
+     * recalculated when the version of a column changes.  The returned array must not be
+     * modified.
+     */
+    int[] getColumnWidths() {
+        int count = columns.size();
+        if (cachedWidths != null && cachedWidths.length == count) {
+            int i = 0;
+            while (i < count && columns.get(i).getVersion() == cachedVersions[i]) {
+                i++;
+            }
+            if (i == count) {
+                return cachedWidths;
+            }
+        }
+        int[] widths = new int[count];
+        long[] versions = new long[count];
+        for (int i = 0; i < count; i++) {
+            TextTableColumn col = columns.get(i);
+            versions[i] = col.getVersion();
+            widths[i] = col.getWidth();
+        }
+        cachedVersions = versions;
+        cachedWidths = widths;
+        return widths;
+    }
+
+    /**
+     * Writes the lines that precede the first row of the table: the header (if enabled) and
+     * the horizontal lines around it.
+     */
+    void writeTableTop(RowWriter writer, int[] widths, String line, boolean useHooks) throws IOException {
+        if (printHeaders) {
+            writer.line(line);
+            appendHeader(writer.row(), widths, useHooks);
+            writer.flush();
+        }
+        writer.line(line);
+    }
+
+    /**
+     * Returns the rendered empty cell of each column for the given column widths, including
+     * the vertical line and padding before the cell.  They are built once per set of widths, so
+     * empty rows and rows beyond the end of short columns are rendered by copying them.
+     */
+    private char[][] blankCells(int[] widths) {
+        BlankCells blanks = blankCells;
+        if (blanks == null || blanks.widths != widths || blanks.padding != padding) {
+            blanks = new BlankCells(widths, padding);
+            blankCells = blanks;
+        }
+        return blanks.cells;
+    }
+
+    /**
+     * Returns the horizontal line for the given column widths.  It is built once per render and
+     * reused for every line in the table.
+     */
+    String horizontalLine(int[] widths, boolean useHooks) {
+        if (useHooks && customHorizontalLine) {
+            return generateHorizontalLine();
+        }
+        return horizontalLine(widths, getPadding());
+    }
+
+    /**
+     * Returns the horizontal line for the given column widths and padding.
+     */
+    static String horizontalLine(int[] widths, int padding) {
+        StringBuilder sb = new StringBuilder();
+        for (int width : widths) {
+            sb.append(CELL_CONNECTOR_CHAR);
+            TextFormatter.fill(sb, width + 2 * padding, HORIZ_LINE_CHAR);
+        }
+        sb.append(CELL_CONNECTOR_CHAR);
+        sb.append(NEWLINE);
+        return sb.toString();
+    }
+
+    private void appendHeader(StringBuilder sb, int[] widths, boolean useHooks) {
+        if (useHooks && customHeader) {
+            sb.append(generateHeader());
+            return;
+        }
+        for (int i = 0; i < widths.length; i++) {
+            appendCell(sb, columns.get(i).getName(), widths[i], TextFormatter.Alignment.CENTER);
+        }
+        sb.append(VERT_LINE_CHAR);
+        sb.append(NEWLINE);
+    }
+
+    /**
+     * Appends a row of the table and returns the number of truncated cells in it.
+     */
+    int appendRow(StringBuilder sb, int row, int[] widths) {
+        if (customRow) {
+            sb.append(generateRow(row));
+            return 0;
+        }
+        int truncated = 0;
+        char[][] blanks = null;
+        for (int i = 0; i < widths.length; i++) {
+            TextTableColumn col = columns.get(i);
+            if (row < col.getNumRows() && !col.isEmptyRow(row)) {
+                sb.append(VERT_LINE_CHAR);
+                TextFormatter.fill(sb, padding, PADDING_CHAR);
+                if (col.appendFittedValue(sb, row, widths[i])) {
+                    truncated++;
+                }
+                TextFormatter.fill(sb, padding, PADDING_CHAR);
+            } else {
+                if (blanks == null) {
+                    blanks = blankCells(widths);
+                }
+                sb.append(blanks[i]);
+            }
+        }
+        sb.append(VERT_LINE_CHAR);
+        sb.append(NEWLINE);
+        return truncated;
+    }
+
+    /**
+     * Appends a row of values and returns the number of truncated cells in it.
+     */
+    private int appendValues(StringBuilder sb, List<String> values, int[] widths) {
+        int truncated = 0;
+        for (int i = 0; i < widths.length; i++) {
+            String text = (i < values.size()) ? values.get(i) : EMPTY_CELL;
+            if (appendCell(sb, text, widths[i], columns.get(i).getAlignment())) {
+                truncated++;
+            }
+        }
+        sb.append(VERT_LINE_CHAR);
+        sb.append(NEWLINE);
+        return truncated;
+    }
+
+    /**
+     * Appends a cell (the vertical separator and the padded, fitted value) without creating
+     * any intermediate objects.  Returns true if the value was truncated.
+     */
+    private boolean appendCell(StringBuilder sb, String text, int width, TextFormatter.Alignment alignment) {
+        return appendCell(sb, text, width, padding, alignment, PADDING_CHAR);
+    }
+
+    /**
+     * Appends a cell with the given padding, filling the space around the fitted value with
+     * the given character.  Returns true if the value was truncated.
+     */
+    static boolean appendCell(StringBuilder sb, String text, int width, int padding,
+                              TextFormatter.Alignment alignment, char padChar) {
+        sb.append(VERT_LINE_CHAR);
+        TextFormatter.fill(sb, padding, PADDING_CHAR);
+        boolean truncated = TextField.fit(sb, text, width, alignment, padChar);
+        TextFormatter.fill(sb, padding, PADDING_CHAR);
+        return truncated;
+    }
+
+    private void renderCompleted(RowWriter writer, int rows, int columns, long truncated, long start,
+                                 long widthsDone) {
+        long renderNanos = System.nanoTime() - widthsDone - writer.outputNanos;
+        renderCompleted(new RenderStats(rows, columns, writer.outputChars, writer.outputBytes(), widthsDone - start,
+                renderNanos, writer.outputNanos, truncated, writer.peakChars));
+    }
+
+    private void renderCompleted(RenderStats stats) {
+        log.debug("Rendered table: {}", stats);
+        RenderListener listener = renderListener;
+        if (listener != null) {
+            listener.renderCompleted(stats);
+        }
+    }
+
+    /**
+     * Returns true if a subclass overrides any of the generate* hooks, so the table can only be
+     * rendered in full by {@link #generate()}.
+     */
+    boolean usesRenderHooks() {
+        return customHorizontalLine || customHeader || customRow;
+    }
+
+    /**
+     * Returns the number of lines that precede the first row: the header (if enabled) and the
+     * horizontal lines around it.
+     */
+    int getTableTopLines() {
+        return printHeaders ? 3 : 1;
+    }
+
+    /**
+     * Returns true if a subclass overrides the named generate* hook.
+     */
+    private boolean overridesHook(String name, Class<?>... parameterTypes) {
+        for (Class<?> c = getClass(); c != TextTableGenerator.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared at this level, keep looking up the hierarchy
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Buffers a single rendered row and hands it to the destination.  Rows are rendered
+     * directly into the destination when it is a StringBuilder, and written from a reusable
+     * character array when it is a Writer to avoid creating a String per row.
+     */
+    static class RowWriter {
+        private final Appendable out;
+        private final StringBuilder row;
+        private final boolean timed;
+        private final int initialLength;
+        private char[] chars = new char[0];
+
+        private long outputChars;
+        private long outputNanos;
+        private long peakChars;
+
+        RowWriter(Appendable out, boolean timed) {
+            this.out = out;
+            this.row = (out instanceof StringBuilder) ? (StringBuilder) out : new StringBuilder();
+            this.timed = timed;
+            this.initialLength = row.length();
+        }
+
+        StringBuilder row() {
+            return row;
+        }
+
+        /**
+         * Returns the number of bytes written when the destination encodes the rows itself, or
+         * -1 when it is written characters.
+         */
+        long outputBytes() {
+            return (out instanceof Utf8Output) ? ((Utf8Output) out).size() : -1;
+        }
+
+        /**
+         * Writes a horizontal line.  The line is handed to a UTF-8 destination as is so that it
+         * only needs to be encoded once per render.
+         */
+        void line(String line) throws IOException {
+            if (out instanceof Utf8Output) {
+                long start = timed ? System.nanoTime() : 0;
+                ((Utf8Output) out).writeLine(line);
+                if (timed) {
+                    outputNanos += System.nanoTime() - start;
+                }
+                outputChars += line.length();
+                peakChars = Math.max(peakChars, line.length());
+            } else {
+                row.append(line);
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (row == out) {
+                outputChars = row.length() - initialLength;
+                peakChars = outputChars;
+                return;
+            }
+            int length = row.length();
+            long start = timed ? System.nanoTime() : 0;
+            if (out instanceof Writer) {
+                if (chars.length < length) {
+                    chars = new char[length];
+                }
+                row.getChars(0, length, chars, 0);
+                ((Writer) out).write(chars, 0, length);
+            } else {
+                out.append(row);
+            }
+            if (timed) {
+                outputNanos += System.nanoTime() - start;
+            }
+            outputChars += length;
+            peakChars = Math.max(peakChars, length);
+            row.setLength(0);
+        }
+    }
+
+    /**
+     * Renders a range of rows into their fixed position within the output buffer, splitting
+     * the range into sub-tasks until it is small enough to render directly.
+     */
+    private class RenderRowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] table;
+        private final int offset;
+        private final int rowLength;
+        private final int[] widths;
+        private final int fromRow;
+        private final int toRow;
+        private final LongAdder truncated;
+
+        RenderRowsTask(char[] table, int offset, int rowLength, int[] widths, int fromRow, int toRow,
+                       LongAdder truncated) {
+            this.table = table;
+            this.offset = offset;
+            this.rowLength = rowLength;
+            this.widths = widths;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.truncated = truncated;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow > PARALLEL_BATCH_ROWS) {
+                int mid = (fromRow + toRow) >>> 1;
+                invokeAll(new RenderRowsTask(table, offset, rowLength, widths, fromRow, mid, truncated),
+                        new RenderRowsTask(table, offset, rowLength, widths, mid, toRow, truncated));
+                return;
+            }
+            StringBuilder sb = new StringBuilder(rowLength);
+            int truncatedCells = 0;
+            for (int row = fromRow; row < toRow; row++) {
+                sb.setLength(0);
+                truncatedCells += appendRow(sb, row, widths);
+                if (sb.length() != rowLength) {
+                    throw new RowLengthMismatch();
+                }
+                sb.getChars(0, rowLength, table, offset + row * rowLength);
+            }
+            truncated.add(truncatedCells);
+        }
+    }
+
+    /**
+     * The rendered empty cells for a set of column widths.  Immutable once published so they can
+     * be shared by parallel renders.
+     */
+    private static class BlankCells {
+        private final int[] widths;
+        private final int padding;
+        private final char[][] cells;
+
+        BlankCells(int[] widths, int padding) {
+            this.widths = widths;
+            this.padding = padding;
+            this.cells = new char[widths.length][];
+            for (int i = 0; i < widths.length; i++) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(VERT_LINE_CHAR);
+                TextFormatter.fill(sb, widths[i] + 2 * padding, PADDING_CHAR);
+                cells[i] = sb.toString().toCharArray();
+            }
+        }
+    }
+
+    /**
+     * The output of the last {@link #generate()} and the rendered blocks of rows it was built
+     * from.  Blocks are only added while they fit in the capacity.  Tables are rendered block by
+     * block from the top, so evicting old blocks to make room would discard exactly the blocks
+     * the next render needs first; keeping the leading blocks gives a stable set of hits.
+     */
+    private static class OutputCache {
+        static final int BLOCK_ROWS = 1 << TextTableColumn.ROW_BLOCK_SHIFT;
+
+        private final long capacity;
+        private final Map<Integer, CachedBlock> blocks = new HashMap<>();
+        private long blockChars;
+
+        // Columns, widths and padding the blocks were rendered with
+        private TextTableColumn[] columns = new TextTableColumn[0];
+        private int[] widths;
+        private int padding;
+
+        // The whole table and the column versions it was rendered at
+        private String table;
+        private long[] versions;
+        private int rows;
+        private long truncated;
+
+        OutputCache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean isLayout(List<TextTableColumn> columns, int padding) {
+            if (padding != this.padding || columns.size() != this.columns.length) {
+                return false;
+            }
+            for (int i = 0; i < this.columns.length; i++) {
+                if (columns.get(i) != this.columns[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void reset(List<TextTableColumn> columns, int[] widths, int padding) {
+            this.columns = columns.toArray(new TextTableColumn[0]);
+            this.widths = widths.clone();
+            this.padding = padding;
+            blocks.clear();
+            blockChars = 0;
+            table = null;
+        }
+
+        /**
+         * Caches a block rendered at the end of a buffer if it fits in the capacity, replacing
+         * any previous version of it.  Blocks that do not fit are never copied out of the buffer.
+         */
+        void put(int block, StringBuilder sb, int start, long[] versions, int rows, int truncated) {
+            CachedBlock previous = blocks.remove(block);
+            if (previous != null) {
+                blockChars -= previous.text.length();
+            }
+            int chars = sb.length() - start;
+            if (blockChars + chars <= capacity) {
+                blocks.put(block, new CachedBlock(sb.substring(start), versions, rows, truncated));
+                blockChars += chars;
+            }
+        }
+
+        /**
+         * Records the table built from the blocks and drops blocks beyond the end of it.  The
+         * table itself is only kept if it fits alongside the blocks.
+         */
+        void completed(String table, long[] versions, int rows, long truncated, int numBlocks) {
+            Iterator<Map.Entry<Integer, CachedBlock>> it = blocks.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, CachedBlock> entry = it.next();
+                if (entry.getKey() >= numBlocks) {
+                    blockChars -= entry.getValue().text.length();
+                    it.remove();
+                }
+            }
+            this.table = (table.length() <= capacity - blockChars) ? table : null;
+            this.versions = versions;
+            this.rows = rows;
+            this.truncated = truncated;
+        }
+    }
+
+    /**
+     * A rendered block of rows and the versions of the column blocks it was rendered from.
+     */
+    private static class CachedBlock {
+        private final String text;
+        private final long[] versions;
+        private final int rows;
+        private final int truncated;
+
+        CachedBlock(String text, long[] versions, int rows, int truncated) {
+            this.text = text;
+            this.versions = versions;
+            this.rows = rows;
+            this.truncated = truncated;
+        }
+    }
+
+    /**
+     * Thrown by a render task when a row is not the expected number of characters, which
+     * happens when it contains wide or combining characters.
+     */
+    private static class RowLengthMismatch extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RowLengthMismatch() {
+            super("row length differs from display width", null, false, false);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compiled table layout for rendering many tables with the same schema.  The
+ * column names, widths, alignments, padding and pad characters are frozen when the layout is
+ * created, and the horizontal line and header are rendered once up front, so rendering a table
+ * only does the per-cell work of fitting values.  Column lookups by name use a hash map.
+ * <p>
+ * Layouts are safe to share between threads; each render uses its own buffer.
+ *
+ * @see TextTableGenerator#compileLayout()
+ */
+public final class TextTableLayout {
+    private final String[] names;
+    private final int[] widths;
+    private final TextFormatter.Alignment[] alignments;
+    private final char[] padChars;
+    private final int padding;
+    private final boolean printHeaders;
+    private final Map<String, Integer> indexes;
+
+    private final String line;
+    private final String header;
+
+    /**
+     * Constructor.  Creates a layout from a set of columns, using their current width
+     * (calculated from their values for AUTO_WIDTH columns) as a fixed width.  Values that are
+     * longer than a column's width are truncated with ellipsis.
+     *
+     * @param columns      [in] The columns of the layout.  Only their settings are used.
+     * @param padding      [in] The number of padding characters either side of each cell.
+     * @param printHeaders [in] True if the header is rendered.
+     */
+    public TextTableLayout(List<TextTableColumn> columns, int padding, boolean printHeaders) {
+        if (padding < 0) {
+            String msg = String.format("TextTableLayout: invalid padding [%d] -> padding must be > 0", padding);
+            throw new IllegalArgumentException(msg);
+        }
+        int count = columns.size();
+        String[] names = new String[count];
+        int[] widths = new int[count];
+        TextFormatter.Alignment[] alignments = new TextFormatter.Alignment[count];
+        for (int i = 0; i < count; i++) {
+            TextTableColumn column = columns.get(i);
+            names[i] = column.getName();
+            widths[i] = column.getWidth();
+            alignments[i] = column.getAlignment();
+        }
+        char[] padChars = new char[count];
+        Arrays.fill(padChars, TextTableGenerator.PADDING_CHAR);
+        this.names = names;
+        this.widths = widths;
+        this.alignments = alignments;
+        this.padChars = padChars;
+        this.padding = padding;
+        this.printHeaders = printHeaders;
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = count - 1; i >= 0; i--) {
+            // the first column with a name wins, as with TextTableGenerator.getColumnByName
+            indexes.put(names[i], i);
+        }
+        this.indexes = Collections.unmodifiableMap(indexes);
+
+        this.line = TextTableGenerator.horizontalLine(widths, padding);
+        this.header = renderHeader();
+    }
+
+    private TextTableLayout(TextTableLayout layout, char[] padChars) {
+        this.names = layout.names;
+        this.widths = layout.widths;
+        this.alignments = layout.alignments;
+        this.padChars = padChars;
+        this.padding = layout.padding;
+        this.printHeaders = layout.printHeaders;
+        this.indexes = layout.indexes;
+        this.line = layout.line;
+        this.header = layout.header;
+    }
+
+    /**
+     * Returns a copy of this layout that pads the values of a column with a different
+     * character.  The pad character only applies to values; the header is always padded with
+     * spaces.
+     *
+     * @param column  [in] The (zero based) column index.
+     * @param padChar [in] The character used to pad values within the column.
+     * @return The new layout.
+     */
+    public TextTableLayout withPadChar(int column, char padChar) {
+        char[] copy = padChars.clone();
+        copy[column] = padChar;
+        return new TextTableLayout(this, copy);
+    }
+
+    /**
+     * Returns the number of columns in the layout.
+     */
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the index of the column with the specified name, or -1 if there is none.
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     * Returns the name of a column.
+     */
+    public String getName(int column) {
+        return names[column];
+    }
+
+    /**
+     * Returns the width of a column, not including padding.
+     */
+    public int getWidth(int column) {
+        return widths[column];
+    }
+
+    /**
+     * Returns the alignment of a column.
+     */
+    public TextFormatter.Alignment getAlignment(int column) {
+        return alignments[column];
+    }
+
+    /**
+     * Returns the number of padding characters either side of each cell.
+     */
+    public int getPadding() {
+        return padding;
+    }
+
+    /**
+     * Renders a table of rows with this layout.
+     *
+     * @param rows [in] The rows of the table.  Missing values are rendered as empty cells and
+     *             extra values are ignored.
+     * @return The rendered table.
+     */
+    public String render(Iterable<? extends List<String>> rows) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            render(rows.iterator(), sb);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Renders a table of rows with this layout, writing it to the specified destination one
+     * row at a time.
+     *
+     * @param rows [in] The rows of the table.
+     * @param out  [in] The destination the table is written to.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public void render(Iterator<? extends List<String>> rows, Appendable out) throws IOException {
+        TextTableGenerator.RowWriter writer = new TextTableGenerator.RowWriter(out, false);
+        if (printHeaders) {
+            writer.row().append(line);
+            writer.row().append(header);
+            writer.flush();
+        }
+        writer.line(line);
+        while (rows.hasNext()) {
+            appendRow(writer.row(), rows.next());
+            writer.flush();
+        }
+        writer.line(line);
+    }
+
+    private void appendRow(StringBuilder sb, List<String> values) {
+        int count = Math.min(values.size(), widths.length);
+        for (int i = 0; i < widths.length; i++) {
+            String text = (i < count) ? values.get(i) : TextTableGenerator.EMPTY_CELL;
+            TextTableGenerator.appendCell(sb, text, widths[i], padding, alignments[i], padChars[i]);
+        }
+        sb.append(TextTableGenerator.VERT_LINE_CHAR);
+        sb.append(TextTableGenerator.NEWLINE);
+    }
+
+    private String renderHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            TextTableGenerator.appendCell(sb, names[i], widths[i], padding, TextFormatter.Alignment.CENTER,
+                    TextTableGenerator.PADDING_CHAR);
+        }
+        sb.append(TextTableGenerator.VERT_LINE_CHAR);
+        sb.append(TextTableGenerator.NEWLINE);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Redraws a table in place on an ANSI terminal, for dashboards that refresh the same table
+ * periodically.  The first refresh clears the screen and writes the whole table at the top
+ * left.  Each later refresh compares the table with the previous frame and writes only the
+ * cells whose fitted text changed, each preceded by a cursor movement.  Rows added since the
+ * previous frame are written in full.
+ * <p>
+ * Cells are fitted exactly as {@link TextTableGenerator#generate()} fits them.  Rows in blocks
+ * whose column versions are unchanged are not fitted again, so a refresh of a mostly static
+ * table costs little more than comparing the column versions.  The whole table is redrawn if
+ * the column widths, padding or columns change, or if rows are removed.
+ * <p>
+ * Changed cells are addressed by absolute screen position, so this only works while the whole
+ * table fits on the screen.  Set the screen height to have taller tables cleared and written in
+ * full on every change instead.  Tables whose generator overrides any of the generate* hooks
+ * are also always written in full with {@link TextTableGenerator#generate()}, since their
+ * cells may not match the fitted column values.
+ * <p>
+ * Between refreshes the cursor is left on the line below the table.  The refresher assumes
+ * nothing else moves the cursor or writes to the screen; call {@link #reset()} to force a full
+ * redraw (e.g. after the terminal is resized).
+ */
+public class TextTableRefresher {
+    private static final String ESCAPE = "\u001b[";
+    private static final String CLEAR_SCREEN = ESCAPE + "H" + ESCAPE + "2J";
+
+    private final TextTableGenerator generator;
+    private final StringBuilder cell = new StringBuilder();
+    private int screenHeight;
+
+    // Layout of the previous frame
+    private TextTableColumn[] columns;
+    private int[] widths;
+    private int padding;
+    private String top;
+    private int topLines;
+    private String line;
+
+    // Fitted text of every cell of the previous frame, and the versions of the column blocks
+    // the rows were fitted at
+    private final List<String[]> cells = new ArrayList<>();
+    private final List<long[]> blockVersions = new ArrayList<>();
+
+    // Cursor position (1-based) after the previous frame
+    private int cursorLine;
+    private int cursorColumn;
+
+    // The previous frame when it was written in full by the generator
+    private String generated;
+
+    /**
+     * Constructor
+     *
+     * @param generator [in] The table to render.
+     */
+    public TextTableRefresher(TextTableGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Returns the number of lines on the screen, or 0 if it is unknown.
+     */
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    /**
+     * Sets the number of lines on the screen.  Tables that do not fit on the screen (including
+     * the line the cursor is left on) are cleared and written in full on every change, as
+     * changed cells cannot be addressed once the screen has scrolled.  The default is 0, which
+     * assumes every table fits.
+     *
+     * @param screenHeight [in] The number of lines on the screen, or 0 if it is unknown.
+     */
+    public void setScreenHeight(int screenHeight) {
+        if (screenHeight < 0) {
+            String msg = String.format("setScreenHeight: invalid screenHeight [%d] -> screenHeight must be >= 0",
+                    screenHeight);
+            throw new IllegalArgumentException(msg);
+        }
+        this.screenHeight = screenHeight;
+    }
+
+    /**
+     * Discards the previous frame, so that the next refresh redraws the whole table.
+     */
+    public void reset() {
+        columns = null;
+        cells.clear();
+        blockVersions.clear();
+        generated = null;
+    }
+
+    /**
+     * Writes the changes since the previous refresh (or the whole table on the first refresh)
+     * to the terminal.  Nothing is written if the table has not changed.
+     *
+     * @param out [in] The terminal output.
+     * @return The number of cells written.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public int refresh(Appendable out) throws IOException {
+        int[] currentWidths = generator.getColumnWidths();
+        int rows = generator.getNumRows();
+        StringBuilder frame = new StringBuilder();
+        int written;
+        if (generator.usesRenderHooks()
+                || (screenHeight > 0 && generator.getTableTopLines() + rows + 2 > screenHeight)) {
+            written = redrawGenerated(frame, rows);
+        } else if (!isLayout(currentWidths) || rows < cells.size()) {
+            written = redraw(frame, currentWidths, rows);
+        } else {
+            written = update(frame, rows);
+        }
+        if (frame.length() > 0) {
+            out.append(frame);
+        }
+        return written;
+    }
+
+    private boolean isLayout(int[] currentWidths) {
+        if (columns == null || columns.length != generator.getNumColumns()
+                || padding != generator.getPadding() || !Arrays.equals(widths, currentWidths)) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != generator.getColumnByIndex(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears the screen and writes the whole table.
+     */
+    private int redraw(StringBuilder frame, int[] currentWidths, int rows) {
+        columns = new TextTableColumn[generator.getNumColumns()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = generator.getColumnByIndex(i);
+        }
+        widths = currentWidths.clone();
+        padding = generator.getPadding();
+        line = generator.horizontalLine(widths, false);
+        top = tableTop();
+        topLines = countLines(top);
+        cells.clear();
+        blockVersions.clear();
+        generated = null;
+
+        frame.append(CLEAR_SCREEN);
+        frame.append(top);
+        appendRows(frame, 0, rows);
+        frame.append(line);
+        cursorLine = topLines + rows + 2;
+        cursorColumn = 1;
+        return rows * columns.length;
+    }
+
+    /**
+     * Clears the screen and writes the table rendered by the generator, unless it is the same
+     * as the previous frame.
+     */
+    private int redrawGenerated(StringBuilder frame, int rows) {
+        String table = generator.generate();
+        if (table.equals(generated)) {
+            return 0;
+        }
+        reset();
+        generated = table;
+        frame.append(CLEAR_SCREEN);
+        frame.append(table);
+        return rows * generator.getNumColumns();
+    }
+
+    /**
+     * Writes the cells that changed since the previous frame and any rows added since.
+     */
+    private int update(StringBuilder frame, int rows) {
+        int written = 0;
+        String currentTop = tableTop();
+        if (!currentTop.equals(top)) {
+            moveTo(frame, 1, 1);
+            frame.append(currentTop);
+            top = currentTop;
+            cursorLine = topLines + 1;
+        }
+
+        int previousRows = cells.size();
+        int blockRows = 1 << TextTableColumn.ROW_BLOCK_SHIFT;
+        for (int block = 0, first = 0; first < previousRows; block++, first += blockRows) {
+            long[] versions = currentBlockVersions(block);
+            if (block < blockVersions.size() && Arrays.equals(versions, blockVersions.get(block))) {
+                continue;
+            }
+            for (int row = first, last = Math.min(previousRows, first + blockRows); row < last; row++) {
+                written += updateRow(frame, row);
+            }
+            setBlockVersions(block, versions);
+        }
+
+        if (rows > previousRows) {
+            // the new rows overwrite the closing line of the previous frame
+            moveTo(frame, topLines + previousRows + 1, 1);
+            appendRows(frame, previousRows, rows);
+            frame.append(line);
+            cursorLine = topLines + rows + 2;
+            cursorColumn = 1;
+            written += (rows - previousRows) * columns.length;
+        }
+        if (frame.length() > 0) {
+            moveTo(frame, topLines + rows + 2, 1);
+        }
+        return written;
+    }
+
+    /**
+     * Writes the cells of a row whose fitted text changed and returns the number written.
+     */
+    private int updateRow(StringBuilder frame, int row) {
+        String[] previous = cells.get(row);
+        int written = 0;
+        int column = 1;
+        for (int i = 0; i < columns.length; i++) {
+            int valueColumn = column + 1 + padding;
+            String text = fitCell(row, i);
+            if (!text.equals(previous[i])) {
+                moveTo(frame, topLines + row + 1, valueColumn);
+                frame.append(text);
+                cursorColumn = valueColumn + widths[i];
+                previous[i] = text;
+                written++;
+            }
+            column = valueColumn + widths[i] + padding;
+        }
+        return written;
+    }
+
+    /**
+     * Appends the rows in [firstRow, lastRow), recording the fitted text of their cells.
+     */
+    private void appendRows(StringBuilder frame, int firstRow, int lastRow) {
+        int blockRows = 1 << TextTableColumn.ROW_BLOCK_SHIFT;
+        for (int row = firstRow; row < lastRow; row++) {
+            if ((row & (blockRows - 1)) == 0 || row == firstRow) {
+                setBlockVersions(row >>> TextTableColumn.ROW_BLOCK_SHIFT,
+                        currentBlockVersions(row >>> TextTableColumn.ROW_BLOCK_SHIFT));
+            }
+            String[] texts = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                texts[i] = fitCell(row, i);
+                frame.append(TextTableGenerator.VERT_LINE_CHAR);
+                TextFormatter.fill(frame, padding, TextTableGenerator.PADDING_CHAR);
+                frame.append(texts[i]);
+                TextFormatter.fill(frame, padding, TextTableGenerator.PADDING_CHAR);
+            }
+            frame.append(TextTableGenerator.VERT_LINE_CHAR);
+            frame.append(TextTableGenerator.NEWLINE);
+            cells.add(texts);
+        }
+    }
+
+    /**
+     * Returns the text of a cell fitted to its column width.
+     */
+    private String fitCell(int row, int col) {
+        TextTableColumn column = columns[col];
+        cell.setLength(0);
+        if (row < column.getNumRows()) {
+            column.appendFittedValue(cell, row, widths[col]);
+        } else {
+            TextFormatter.fill(cell, widths[col], TextTableGenerator.PADDING_CHAR);
+        }
+        return cell.toString();
+    }
+
+    /**
+     * Moves the cursor with whichever escape sequence is shorter: an absolute position, or a
+     * forward movement within the current line.
+     */
+    private void moveTo(StringBuilder frame, int toLine, int toColumn) {
+        if (toLine == cursorLine && toColumn == cursorColumn) {
+            return;
+        }
+        String absolute = ESCAPE + toLine + ';' + toColumn + 'H';
+        if (toLine == cursorLine && toColumn > cursorColumn) {
+            int distance = toColumn - cursorColumn;
+            String forward = ESCAPE + ((distance == 1) ? "" : String.valueOf(distance)) + 'C';
+            frame.append((forward.length() < absolute.length()) ? forward : absolute);
+        } else {
+            frame.append(absolute);
+        }
+        cursorLine = toLine;
+        cursorColumn = toColumn;
+    }
+
+    private long[] currentBlockVersions(int block) {
+        long[] versions = new long[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            versions[i] = columns[i].getBlockVersion(block);
+        }
+        return versions;
+    }
+
+    private void setBlockVersions(int block, long[] versions) {
+        while (blockVersions.size() <= block) {
+            blockVersions.add(null);
+        }
+        blockVersions.set(block, versions);
+    }
+
+    /**
+     * Returns the lines that precede the first row: the header (if enabled) and the
+     * horizontal lines around it.
+     */
+    private String tableTop() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generator.writeTableTop(new TextTableGenerator.RowWriter(sb, false), widths, line, false);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
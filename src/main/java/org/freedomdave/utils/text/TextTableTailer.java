@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.io.IOException;
+
+/**
+ * Renders a growing table incrementally, for live log-style output.  The first flush writes
+ * the header and all current rows; each later flush writes only the rows added since the
+ * previous flush, using the column widths locked in by the first flush.  The cost of a flush
+ * is proportional to the number of new rows rather than the size of the table.
+ * <p>
+ * If new values make an AUTO_WIDTH column wider than its locked width, the
+ * {@link WidthChangeHandler} decides whether to re-layout (close the current table and write
+ * the whole table again with the new widths) or to keep the locked widths and truncate wider
+ * values with ellipsis.  The handler is called again only if the columns grow further.
+ * Generators that override the generate* hooks render rows with the columns' current widths,
+ * so their values cannot be truncated to the locked widths; for them the handler is not
+ * consulted and the table is always re-laid out.
+ * <p>
+ * The tailer assumes rows are only appended.  If the table has fewer rows than have already
+ * been written, or the number of columns or the padding changes, the next flush closes the
+ * current table and starts a new one, since rows drawn with new padding would not line up with
+ * the existing borders.
+ */
+public class TextTableTailer {
+    /**
+     * The action taken when a column grows wider than its locked width.
+     */
+    public enum WidthChangeAction {
+        /**
+         * Close the current table and write the whole table again with the new widths.
+         */
+        RELAYOUT,
+        /**
+         * Keep the locked widths and truncate wider values with ellipsis.
+         */
+        TRUNCATE
+    }
+
+    /**
+     * Decides what to do when a column grows wider than its locked width.
+     */
+    @FunctionalInterface
+    public interface WidthChangeHandler {
+        /**
+         * Called by a flush when at least one column has grown.
+         *
+         * @param lockedWidths  [in] The widths the table is currently written with.
+         * @param currentWidths [in] The widths the columns now require.
+         * @return The action to take.
+         */
+        WidthChangeAction widthsChanged(int[] lockedWidths, int[] currentWidths);
+    }
+
+    private final TextTableGenerator generator;
+    private final WidthChangeHandler handler;
+
+    private int[] lockedWidths;
+    private int[] seenWidths;
+    private String line;
+    private int padding;
+    private int nextRow;
+
+    /**
+     * Constructor.  Columns that grow are truncated to their locked width.
+     *
+     * @param generator [in] The table to render.
+     */
+    public TextTableTailer(TextTableGenerator generator) {
+        this(generator, (locked, current) -> WidthChangeAction.TRUNCATE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param generator [in] The table to render.
+     * @param handler   [in] Decides what to do when a column grows wider than its locked width.
+     */
+    public TextTableTailer(TextTableGenerator generator, WidthChangeHandler handler) {
+        this.generator = generator;
+        this.handler = handler;
+    }
+
+    /**
+     * Returns the number of rows that have been written.
+     */
+    public int getRowsWritten() {
+        return nextRow;
+    }
+
+    /**
+     * Writes the rows added since the previous flush (or the header and all rows on the first
+     * flush) to the destination.
+     *
+     * @param out [in] The destination the rows are written to.
+     * @return The number of rows written.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public int flush(Appendable out) throws IOException {
+        int[] widths = generator.getColumnWidths();
+        int rows = generator.getNumRows();
+        TextTableGenerator.RowWriter writer = new TextTableGenerator.RowWriter(out, false);
+        int firstRow = nextRow;
+
+        if (lockedWidths == null || widths.length != lockedWidths.length || rows < nextRow
+                || generator.getPadding() != padding) {
+            if (lockedWidths != null) {
+                writer.line(line);
+            }
+            startTable(writer, widths);
+            firstRow = 0;
+        } else if (grew(widths, seenWidths)) {
+            seenWidths = widths;
+            if (generator.usesRenderHooks()
+                    || handler.widthsChanged(lockedWidths.clone(), widths.clone()) == WidthChangeAction.RELAYOUT) {
+                writer.line(line);
+                startTable(writer, widths);
+                firstRow = 0;
+            }
+        }
+
+        for (; nextRow < rows; nextRow++) {
+            generator.appendRow(writer.row(), nextRow, lockedWidths);
+            writer.flush();
+        }
+        return nextRow - firstRow;
+    }
+
+    /**
+     * Writes the closing horizontal line of the table.  The next flush starts a new table.
+     *
+     * @param out [in] The destination the line is written to.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public void close(Appendable out) throws IOException {
+        if (lockedWidths != null) {
+            out.append(line);
+            lockedWidths = null;
+            seenWidths = null;
+            line = null;
+            nextRow = 0;
+        }
+    }
+
+    private void startTable(TextTableGenerator.RowWriter writer, int[] widths) throws IOException {
+        lockedWidths = widths;
+        seenWidths = widths;
+        padding = generator.getPadding();
+        line = generator.horizontalLine(widths, true);
+        generator.writeTableTop(writer, widths, line, true);
+        nextRow = 0;
+    }
+
+    private static boolean grew(int[] widths, int[] previous) {
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] > previous[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A sorted and/or filtered view of the rows of a table.  A view holds an array of row indexes
+ * into the table rather than copies of the values, so re-sorting or filtering a large table
+ * does not copy or reallocate any of its columns.  Views are immutable: sorting or filtering
+ * returns a new view.  The auto-width of each column is calculated over the rows in the view
+ * only, using the column's {@link WidthPolicy}.  Generators that override the generate* hooks
+ * draw with the widths of the whole table, so their views use those widths too.
+ * <p>
+ * Sorts are stable, so sorting by one column and then another orders rows by the second column
+ * and then the first.  Columns compare their values with
+ * {@link TextTableColumn#compareRows(int, int)}, which is numeric for numeric columns.  Rows
+ * that a column does not have (because it is shorter than the table) are treated as smaller
+ * than any value: they come first in ascending order and last in descending order.
+ * <p>
+ * A view refers to rows by index, so it should be recreated if rows are removed from the
+ * table.  Rows added to the table do not appear in existing views.
+ *
+ * @see TextTableGenerator#view()
+ */
+public final class TextTableView {
+    // Runs this short are sorted by insertion rather than merged
+    private static final int INSERTION_SORT_LENGTH = 16;
+
+    private final TextTableGenerator table;
+    private final int[] rows;
+
+    private int[] cachedWidths;
+    private long[] cachedVersions;
+
+    /**
+     * Constructor.  Creates a view of all the rows of a table.
+     */
+    TextTableView(TextTableGenerator table) {
+        this(table, identity(table.getNumRows()));
+    }
+
+    private TextTableView(TextTableGenerator table, int[] rows) {
+        this.table = table;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the table this is a view of.
+     */
+    public TextTableGenerator getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the number of rows in the view.
+     */
+    public int getNumRows() {
+        return rows.length;
+    }
+
+    /**
+     * Returns the index in the table of a row of the view.
+     *
+     * @param row [in] The (zero based) index of the row in the view.
+     * @return The (zero based) index of the row in the table.
+     */
+    public int getTableRow(int row) {
+        return rows[row];
+    }
+
+    /**
+     * Returns a view of the rows that match a predicate.
+     *
+     * @param predicate [in] Tests the index of a row in the table.
+     * @return The filtered view, in the same order as this view.
+     */
+    public TextTableView filter(IntPredicate predicate) {
+        int[] selected = new int[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            if (predicate.test(row)) {
+                selected[count++] = row;
+            }
+        }
+        return new TextTableView(table, Arrays.copyOf(selected, count));
+    }
+
+    /**
+     * Returns a view of the rows whose value in a column matches a predicate.  Rows the column
+     * does not have are tested with an empty value.
+     *
+     * @param column    [in] The name of the column.
+     * @param predicate [in] Tests the value of a row.
+     * @return The filtered view, in the same order as this view.
+     */
+    public TextTableView filter(String column, Predicate<String> predicate) {
+        TextTableColumn col = column("filter", column);
+        return filter(row -> predicate.test((row < col.getNumRows()) ? col.getRowValue(row)
+                : TextTableColumn.EMPTY_VALUE));
+    }
+
+    /**
+     * Returns a view of the rows sorted by the values of a column.  The sort is stable.
+     *
+     * @param column    [in] The name of the column.
+     * @param ascending [in] True to sort smallest first, false for largest first.
+     * @return The sorted view.
+     */
+    public TextTableView sortBy(String column, boolean ascending) {
+        RowComparator comparator = comparator(column("sortBy", column), ascending);
+        int[] sorted = rows.clone();
+        sort(sorted, comparator);
+        return new TextTableView(table, sorted);
+    }
+
+    /**
+     * Returns a view of the first rows of this view when sorted by a column, without sorting the
+     * rest.  The result is the same as sorting the view and keeping the first rows, but it only
+     * takes time proportional to n log(count).
+     *
+     * @param column    [in] The name of the column.
+     * @param count     [in] The maximum number of rows in the result.
+     * @param ascending [in] True to keep the smallest values, false for the largest.
+     * @return The sorted view of at most count rows.
+     */
+    public TextTableView topBy(String column, int count, boolean ascending) {
+        if (count < 0) {
+            String msg = String.format("topBy: invalid count [%d] -> count must be >= 0", count);
+            throw new IllegalArgumentException(msg);
+        }
+        RowComparator byValue = comparator(column("topBy", column), ascending);
+        // ties are broken by position in this view so the result matches a stable sort
+        int[] positions = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            positions[i] = i;
+        }
+        RowComparator comparator = (a, b) -> {
+            int result = byValue.compare(rows[a], rows[b]);
+            return (result != 0) ? result : Integer.compare(a, b);
+        };
+
+        // max-heap of the best positions so far, with the worst of them at the root
+        int[] heap = new int[Math.min(count, rows.length)];
+        int size = 0;
+        for (int position : positions) {
+            if (size < heap.length) {
+                heap[size] = position;
+                siftUp(heap, size++, comparator);
+            } else if (size > 0 && comparator.compare(position, heap[0]) < 0) {
+                heap[0] = position;
+                siftDown(heap, size, comparator);
+            }
+        }
+        sort(heap, comparator);
+        for (int i = 0; i < heap.length; i++) {
+            heap[i] = rows[heap[i]];
+        }
+        return new TextTableView(table, heap);
+    }
+
+    /**
+     * Generates the table with only the rows of this view, in the order of the view.
+     */
+    public String generate() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generate(sb);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generates the table with only the rows of this view, writing it to the specified
+     * destination one row at a time.
+     *
+     * @param out [in] The destination the table is written to.
+     * @throws IOException If the destination cannot be written to.
+     */
+    public void generate(Appendable out) throws IOException {
+        table.render(out, this, 0, rows.length);
+    }
+
+    /**
+     * Returns the width of each column over the rows of the view, using the width policy of
+     * each AUTO_WIDTH column, or the widths of the whole table when the generator overrides a
+     * generate* hook.  The widths are cached and only recalculated when the version of a column
+     * changes.  The returned array must not be modified.
+     */
+    int[] getColumnWidths() {
+        if (table.usesRenderHooks()) {
+            // the hooks render with each column's own width
+            return table.getColumnWidths();
+        }
+        int count = table.getNumColumns();
+        long[] versions = new long[count];
+        for (int i = 0; i < count; i++) {
+            versions[i] = table.getColumnByIndex(i).getVersion();
+        }
+        if (cachedWidths != null && Arrays.equals(versions, cachedVersions)) {
+            return cachedWidths;
+        }
+        int[] widths = new int[count];
+        for (int i = 0; i < count; i++) {
+            TextTableColumn col = table.getColumnByIndex(i);
+            widths[i] = col.isAutoWidth() ? col.getWidthPolicy().width(col, rows) : col.getWidth();
+        }
+        cachedVersions = versions;
+        cachedWidths = widths;
+        return widths;
+    }
+
+    private TextTableColumn column(String method, String name) {
+        TextTableColumn col = table.getColumnByName(name);
+        if (col == null) {
+            String msg = String.format("%s: invalid column [%s] -> no column with that name", method, name);
+            throw new IllegalArgumentException(msg);
+        }
+        return col;
+    }
+
+    private static int[] identity(int count) {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private static RowComparator comparator(TextTableColumn col, boolean ascending) {
+        RowComparator comparator = (a, b) -> {
+            int numRows = col.getNumRows();
+            boolean hasA = a < numRows;
+            boolean hasB = b < numRows;
+            return (hasA && hasB) ? col.compareRows(a, b) : Boolean.compare(hasA, hasB);
+        };
+        return ascending ? comparator : (a, b) -> comparator.compare(b, a);
+    }
+
+    /**
+     * Stable merge sort of an int array, so row indexes are never boxed.
+     */
+    private static void sort(int[] values, RowComparator comparator) {
+        mergeSort(values.clone(), values, 0, values.length, comparator);
+    }
+
+    /**
+     * Sorts src[from, to) into dst[from, to).  Both arrays must hold the same values on entry.
+     */
+    private static void mergeSort(int[] src, int[] dst, int from, int to, RowComparator comparator) {
+        if (to - from <= INSERTION_SORT_LENGTH) {
+            for (int i = from + 1; i < to; i++) {
+                int value = dst[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(dst[j], value) > 0) {
+                    dst[j + 1] = dst[j];
+                    j--;
+                }
+                dst[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, comparator);
+        mergeSort(dst, src, mid, to, comparator);
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dst, from, to - from);
+            return;
+        }
+        for (int i = from, left = from, right = mid; i < to; i++) {
+            if (right >= to || (left < mid && comparator.compare(src[left], src[right]) <= 0)) {
+                dst[i] = src[left++];
+            } else {
+                dst[i] = src[right++];
+            }
+        }
+    }
+
+    private static void siftUp(int[] heap, int index, RowComparator comparator) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (comparator.compare(value, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, RowComparator comparator) {
+        int value = heap[0];
+        int index = 0;
+        int child;
+        while ((child = 2 * index + 1) < size) {
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(value, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * Compares two row indexes without boxing them.
+     */
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int row1, int row2);
+    }
+}
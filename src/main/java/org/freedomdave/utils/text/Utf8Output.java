@@ -0,0 +1,269 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Encodes rendered text as UTF-8 into a reusable byte array and drains it to an output stream,
+ * channel or byte buffer.  ASCII characters, which make up almost all of a table, are copied
+ * byte for byte and only other characters go through the full encoding.  The horizontal line
+ * of a table is encoded once and copied for every line it appears on.
+ * <p>
+ * Instances are pooled per thread, so rendering tables repeatedly on the same thread does not
+ * create any garbage once the buffers have grown to size.
+ */
+final class Utf8Output implements Appendable {
+    private static final int BATCH_BYTES = 8192;
+    private static final byte REPLACEMENT = '?';
+    private static final ThreadLocal<Utf8Output> POOL = ThreadLocal.withInitial(Utf8Output::new);
+
+    private final int batchBytes;
+    private byte[] bytes;
+    private int count;
+    private OutputStream stream;
+    private WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private long written;
+    private boolean inUse;
+
+    private String encodedLine;
+    private byte[] lineBytes = new byte[0];
+    private int lineLength;
+
+    private Utf8Output() {
+        this(BATCH_BYTES);
+    }
+
+    private Utf8Output(int batchBytes) {
+        this.batchBytes = batchBytes;
+        this.bytes = new byte[batchBytes];
+    }
+
+    /**
+     * Returns the pooled instance for the current thread, or a new one if it is already in use
+     * by a render further up the stack.
+     */
+    private static Utf8Output acquire() {
+        Utf8Output output = POOL.get();
+        if (output.inUse) {
+            output = new Utf8Output();
+        }
+        output.inUse = true;
+        output.count = 0;
+        output.written = 0;
+        return output;
+    }
+
+    static Utf8Output acquire(OutputStream stream) {
+        Utf8Output output = acquire();
+        output.stream = stream;
+        return output;
+    }
+
+    /**
+     * Returns an instance that writes to a channel in batches of the given size.  Large batches
+     * are not worth keeping per thread, so the instance is not pooled.
+     */
+    static Utf8Output open(WritableByteChannel channel, int batchBytes) {
+        Utf8Output output = new Utf8Output(batchBytes);
+        output.inUse = true;
+        output.channel = channel;
+        return output;
+    }
+
+    static Utf8Output acquire(ByteBuffer buffer) {
+        Utf8Output output = acquire();
+        output.buffer = buffer;
+        return output;
+    }
+
+    /**
+     * Writes any buffered bytes to the destination.
+     *
+     * @return The total number of bytes written.
+     * @throws IOException If the stream cannot be written to.
+     */
+    long finish() throws IOException {
+        drain();
+        return written;
+    }
+
+    /**
+     * Returns the number of bytes encoded so far, including any not yet written.
+     */
+    long size() {
+        return written + count;
+    }
+
+    /**
+     * Returns the instance to the pool.  It must not be used afterwards.
+     */
+    void release() {
+        stream = null;
+        channel = null;
+        buffer = null;
+        count = 0;
+        inUse = false;
+    }
+
+    /**
+     * Writes a horizontal line, encoding it only if it differs from the last line written.
+     */
+    void writeLine(String line) throws IOException {
+        if (line != encodedLine) {
+            int length = line.length();
+            if (lineBytes.length < length * 3) {
+                lineBytes = new byte[length * 3];
+            }
+            lineLength = encode(line, 0, length, lineBytes, 0);
+            encodedLine = line;
+        }
+        ensureCapacity(lineLength);
+        System.arraycopy(lineBytes, 0, bytes, count, lineLength);
+        count += lineLength;
+        drainIfFull();
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        ensureCapacity((end - start) * 3);
+        count = encode(csq, start, end, bytes, count);
+        drainIfFull();
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        ensureCapacity(3);
+        count = encode(c, bytes, count);
+        drainIfFull();
+        return this;
+    }
+
+    private void ensureCapacity(int length) {
+        if (bytes.length - count < length) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, count + length)];
+            System.arraycopy(bytes, 0, grown, 0, count);
+            bytes = grown;
+        }
+    }
+
+    private void drainIfFull() throws IOException {
+        if (count >= batchBytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (stream != null) {
+            stream.write(bytes, 0, count);
+        } else if (channel != null) {
+            ByteBuffer batch = ByteBuffer.wrap(bytes, 0, count);
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } else {
+            buffer.put(bytes, 0, count);
+        }
+        written += count;
+        count = 0;
+    }
+
+    /**
+     * Encodes characters as UTF-8.  The destination must have room for three bytes per
+     * character.  Unpaired surrogates are replaced with '?', as String.getBytes does.
+     *
+     * @return The offset following the last byte written.
+     */
+    static int encode(CharSequence csq, int start, int end, byte[] dst, int offset) {
+        int i = start;
+        // ASCII fast path
+        while (i < end) {
+            char c = csq.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            dst[offset++] = (byte) c;
+            i++;
+        }
+        while (i < end) {
+            char c = csq.charAt(i++);
+            if (c < 0x80) {
+                dst[offset++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(csq.charAt(i))) {
+                int cp = Character.toCodePoint(c, csq.charAt(i++));
+                dst[offset++] = (byte) (0xF0 | (cp >> 18));
+                dst[offset++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                dst[offset++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                dst[offset++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                offset = encode(c, dst, offset);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Decodes well-formed UTF-8, as written by {@link #encode}, from [start, end) of a buffer
+     * without changing its position.
+     */
+    static void decode(ByteBuffer buffer, int start, int end, StringBuilder sb) {
+        int i = start;
+        while (i < end) {
+            int b = buffer.get(i++) & 0xFF;
+            if (b < 0x80) {
+                sb.append((char) b);
+            } else if (b < 0xE0) {
+                sb.append((char) (((b & 0x1F) << 6) | (buffer.get(i++) & 0x3F)));
+            } else if (b < 0xF0) {
+                int c = ((b & 0x0F) << 12) | ((buffer.get(i++) & 0x3F) << 6);
+                sb.append((char) (c | (buffer.get(i++) & 0x3F)));
+            } else {
+                int cp = ((b & 0x07) << 18) | ((buffer.get(i++) & 0x3F) << 12);
+                cp |= (buffer.get(i++) & 0x3F) << 6;
+                sb.appendCodePoint(cp | (buffer.get(i++) & 0x3F));
+            }
+        }
+    }
+
+    private static int encode(char c, byte[] dst, int offset) {
+        if (c < 0x80) {
+            dst[offset++] = (byte) c;
+        } else if (c < 0x800) {
+            dst[offset++] = (byte) (0xC0 | (c >> 6));
+            dst[offset++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            dst[offset++] = REPLACEMENT;
+        } else {
+            dst[offset++] = (byte) (0xE0 | (c >> 12));
+            dst[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            dst[offset++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 David Robertson
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Determines how the width of an AUTO_WIDTH column is calculated from its values.  The default
+ * {@link #EXACT} policy uses the widest value, which means every value must be measured and a
+ * single very long value widens every row of the table.  A sampled policy instead measures a
+ * random sample of the values and uses a percentile of their widths (e.g. the 99th), and any
+ * policy can bound the width between a minimum and a maximum.  Values wider than the
+ * resulting width are truncated with ellipsis as usual.
+ * <p>
+ * Sampling is seeded, so the same values always produce the same width.  Policies are
+ * immutable and may be shared between columns.
+ *
+ * @see TextTableColumn#setWidthPolicy(WidthPolicy)
+ */
+public final class WidthPolicy {
+    /**
+     * The default policy: the width of the widest value (or the header), without bounds.
+     */
+    public static final WidthPolicy EXACT = new WidthPolicy(Integer.MAX_VALUE, 1.0, 0, Integer.MAX_VALUE);
+
+    private static final long SAMPLE_SEED = 0x5DEECE66DL;
+
+    private final int sampleSize;
+    private final double percentile;
+    private final int minWidth;
+    private final int maxWidth;
+
+    private WidthPolicy(int sampleSize, double percentile, int minWidth, int maxWidth) {
+        this.sampleSize = sampleSize;
+        this.percentile = percentile;
+        this.minWidth = minWidth;
+        this.maxWidth = maxWidth;
+    }
+
+    /**
+     * Returns a policy that uses a percentile of the widths of a sample of the values.
+     *
+     * @param sampleSize [in] The maximum number of values measured.  Columns with fewer values
+     *                   measure all of them.
+     * @param percentile [in] The percentile of the measured widths used, between 0 (exclusive)
+     *                   and 1 (inclusive).  0.99 ignores the widest 1% of values, 1.0 uses the
+     *                   widest value in the sample.
+     * @return The policy.
+     */
+    public static WidthPolicy sampled(int sampleSize, double percentile) {
+        if (sampleSize <= 0) {
+            String msg = String.format("sampled: invalid sampleSize [%d] -> sampleSize must be > 0", sampleSize);
+            throw new IllegalArgumentException(msg);
+        }
+        if (!(percentile > 0 && percentile <= 1)) {
+            String msg = String.format("sampled: invalid percentile [%s] -> percentile must be > 0 and <= 1",
+                    percentile);
+            throw new IllegalArgumentException(msg);
+        }
+        return new WidthPolicy(sampleSize, percentile, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a copy of this policy that keeps the width between a minimum and a maximum.  The
+     * bounds also apply to the header, which is truncated if it is wider than the maximum.
+     *
+     * @param minWidth [in] The minimum width of the column.
+     * @param maxWidth [in] The maximum width of the column.
+     * @return The bounded policy.
+     */
+    public WidthPolicy withBounds(int minWidth, int maxWidth) {
+        if (minWidth < 0 || maxWidth < minWidth) {
+            String msg = String.format("withBounds: invalid bounds [%d, %d] -> bounds must be 0 <= min <= max",
+                    minWidth, maxWidth);
+            throw new IllegalArgumentException(msg);
+        }
+        return new WidthPolicy(sampleSize, percentile, minWidth, maxWidth);
+    }
+
+    /**
+     * Returns the maximum number of values measured.
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the percentile of the measured widths that is used.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Returns the minimum width.
+     */
+    public int getMinWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Returns the maximum width.
+     */
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * Returns the width of a column under this policy.
+     *
+     * @param column [in] The column.
+     * @param rows   [in] The rows the width is calculated over, or null for all rows.
+     * @return The width of the column.
+     */
+    int width(TextTableColumn column, int[] rows) {
+        int count = (rows == null) ? column.getNumRows() : rows.length;
+        int valueWidth;
+        if (rows == null && sampleSize >= count && percentile == 1.0) {
+            // the column maintains its widest value incrementally
+            valueWidth = column.getMaxValueWidth();
+        } else {
+            int numRows = column.getNumRows();
+            int[] widths = new int[Math.min(count, sampleSize)];
+            BitSet sample = (widths.length < count) ? sampleIndices(count, widths.length) : null;
+            for (int i = 0, index = -1; i < widths.length; i++) {
+                index = (sample == null) ? i : sample.nextSetBit(index + 1);
+                int row = (rows == null) ? index : rows[index];
+                widths[i] = (row < numRows) ? column.getRowWidth(row) : 0;
+            }
+            valueWidth = percentile(widths);
+        }
+        return bound(Math.max(TextFormatter.displayWidth(column.getName()), valueWidth));
+    }
+
+    /**
+     * Returns the width for a set of measured value widths under this policy.
+     *
+     * @param headerWidth [in] The width of the header.
+     * @param widths      [in] The widths of the values.  The array may be reordered.
+     * @return The width of the column.
+     */
+    int width(int headerWidth, int[] widths) {
+        if (widths.length > sampleSize) {
+            // partial Fisher-Yates shuffle: the first sampleSize widths become a sample of
+            // distinct values
+            Random random = new Random(SAMPLE_SEED);
+            for (int i = 0; i < sampleSize; i++) {
+                int j = i + random.nextInt(widths.length - i);
+                int width = widths[i];
+                widths[i] = widths[j];
+                widths[j] = width;
+            }
+            widths = Arrays.copyOf(widths, sampleSize);
+        }
+        return bound(Math.max(headerWidth, percentile(widths)));
+    }
+
+    /**
+     * Returns a random set of distinct indices using Floyd's algorithm, which draws exactly
+     * one random number per index.
+     *
+     * @param count      [in] The number of indices to choose from.
+     * @param sampleSize [in] The number of indices to choose (&lt;= count).
+     */
+    private static BitSet sampleIndices(int count, int sampleSize) {
+        Random random = new Random(SAMPLE_SEED);
+        BitSet sample = new BitSet(count);
+        for (int j = count - sampleSize; j < count; j++) {
+            int index = random.nextInt(j + 1);
+            sample.set(sample.get(index) ? j : index);
+        }
+        return sample;
+    }
+
+    private int percentile(int[] widths) {
+        if (widths.length == 0) {
+            return 0;
+        }
+        if (percentile == 1.0) {
+            int max = 0;
+            for (int width : widths) {
+                max = Math.max(max, width);
+            }
+            return max;
+        }
+        Arrays.sort(widths);
+        int index = (int) Math.ceil(percentile * widths.length) - 1;
+        return widths[Math.max(0, index)];
+    }
+
+    private int bound(int width) {
+        return Math.min(maxWidth, Math.max(minWidth, width));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WidthPolicy[sampleSize=%d, percentile=%s, minWidth=%d, maxWidth=%d]",
+                sampleSize, percentile, minWidth, maxWidth);
+    }
+}
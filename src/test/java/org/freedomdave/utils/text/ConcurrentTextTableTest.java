@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentTextTableTest {
+    @Test
+    public void testSnapshotRendersLikeGenerator() {
+        TextTableColumn salary = new TextTableColumn("SALARY");
+        salary.setAlignment(TextFormatter.Alignment.RIGHT);
+        ConcurrentTextTable table = new ConcurrentTextTable(
+                new TextTableColumn("EMPLOYEE"), new TextTableColumn("JOB TITLE"), salary);
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("EMPLOYEE"));
+        generator.addColumn(new TextTableColumn("JOB TITLE"));
+        generator.addColumn(new TextTableColumn("SALARY"));
+        generator.getColumnByName("SALARY").setAlignment(TextFormatter.Alignment.RIGHT);
+
+        for (String[] row : new String[][]{{"Jane Doe", "CEO", "$1,200,000"}, {"John Doe", "Developer"}}) {
+            table.addRow(Arrays.asList(row));
+            generator.addRow(Arrays.asList(row));
+        }
+        TextTableGenerator snapshot = table.snapshot();
+        table.addRow(Arrays.asList("Joe Sellers", "Sales", "$20,000"));
+        Assert.assertEquals(2, snapshot.getNumRows());
+        Assert.assertEquals(3, table.getNumRows());
+        Assert.assertEquals(generator.generate(), snapshot.generate());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        ConcurrentTextTable table = new ConcurrentTextTable(new TextTableColumn("WORKER"), new TextTableColumn("ITEM"));
+        int workers = 8;
+        int rowsPerWorker = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        for (int w = 0; w < workers; w++) {
+            final String worker = Integer.toString(w);
+            executor.execute(() -> {
+                for (int i = 0; i < rowsPerWorker; i++) {
+                    table.addRow(Arrays.asList(worker, worker + "-" + i));
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        TextTableGenerator snapshot = table.snapshot();
+        Assert.assertEquals(workers * rowsPerWorker, snapshot.getNumRows());
+        Set<String> items = new HashSet<>();
+        for (int row = 0; row < snapshot.getNumRows(); row++) {
+            String worker = snapshot.getColumnByIndex(0).getRowValue(row);
+            String item = snapshot.getColumnByIndex(1).getRowValue(row);
+            Assert.assertTrue(item.startsWith(worker + "-"));
+            items.add(item);
+        }
+        Assert.assertEquals(workers * rowsPerWorker, items.size());
+        Assert.assertEquals(6, snapshot.getColumnByIndex(1).getWidth());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class DictionaryColumnTest {
+    @Test
+    public void testValuesAreEncoded() {
+        DictionaryColumn column = new DictionaryColumn("STATUS");
+        column.addValues(Arrays.asList("OK", "FAILED", "OK", "", "OK"));
+        Assert.assertEquals(Arrays.asList("OK", "FAILED", "OK", "", "OK"), column.getValues());
+        Assert.assertEquals(Arrays.asList("OK", "FAILED", ""), column.getDistinctValues());
+        Assert.assertEquals(6, column.getWidth());
+        column.clear();
+        Assert.assertEquals(0, column.getNumRows());
+        Assert.assertEquals(6, column.getWidth());
+    }
+
+    @Test
+    public void testCodesWidenBeyondShortRange() {
+        DictionaryColumn column = new DictionaryColumn("ID");
+        for (int i = 0; i < 70_000; i++) {
+            column.addValue(Integer.toString(i));
+        }
+        column.addValue("0");
+        Assert.assertEquals("69999", column.getRowValue(69_999));
+        Assert.assertEquals("0", column.getRowValue(70_000));
+    }
+
+    @Test
+    public void testRendersLikePlainColumn() {
+        TextTableGenerator encoded = new TextTableGenerator();
+        encoded.addColumn(new DictionaryColumn("JOB TITLE"));
+        encoded.addColumn(new DictionaryColumn("REGION"));
+        TextTableGenerator plain = new TextTableGenerator();
+        plain.addColumn(new TextTableColumn("JOB TITLE"));
+        plain.addColumn(new TextTableColumn("REGION"));
+
+        String[] titles = {"CEO", "Developer", "Sales"};
+        String[] regions = {"North America", "EMEA"};
+        for (int i = 0; i < 50; i++) {
+            encoded.addRow(Arrays.asList(titles[i % 3], regions[i % 2]));
+            plain.addRow(Arrays.asList(titles[i % 3], regions[i % 2]));
+        }
+        for (TextTableGenerator generator : Arrays.asList(encoded, plain)) {
+            generator.getColumnByName("REGION").setWidth(8);
+            generator.getColumnByName("JOB TITLE").setAlignment(TextFormatter.Alignment.CENTER);
+        }
+        Assert.assertEquals(plain.generate(), encoded.generate());
+    }
+}
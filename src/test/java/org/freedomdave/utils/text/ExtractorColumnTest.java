@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExtractorColumnTest {
+    private static class Order {
+        private final String customer;
+        private long quantity;
+
+        Order(String customer, long quantity) {
+            this.customer = customer;
+            this.quantity = quantity;
+        }
+    }
+
+    private static TextTableGenerator orders(List<Order> orders) {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new ExtractorColumn<Order>("CUSTOMER", orders, order -> order.customer));
+        generator.addColumn(new LongExtractorColumn<Order>("QUANTITY", orders, order -> order.quantity));
+        return generator;
+    }
+
+    @Test
+    public void testRendersLikeCopiedColumns() {
+        List<Order> orders = new ArrayList<>(Arrays.asList(new Order("Acme", 1200), new Order(null, -5)));
+        TextTableGenerator extracted = orders(orders);
+
+        TextTableGenerator copied = new TextTableGenerator();
+        copied.addColumn(new TextTableColumn("CUSTOMER"));
+        copied.addColumn(new LongColumn("QUANTITY"));
+        copied.addRow(Arrays.asList("Acme", "1200"));
+        copied.addRow(Arrays.asList("", "-5"));
+        Assert.assertEquals(copied.generate(), extracted.generate());
+
+        // a change in the size of the source is noticed, changes in place need a refresh
+        orders.add(new Order("Globex Corporation", 7));
+        copied.addRow(Arrays.asList("Globex Corporation", "7"));
+        Assert.assertEquals(copied.generate(), extracted.generate());
+
+        orders.get(0).quantity = 12_000_000;
+        ((LongExtractorColumn<?>) extracted.getColumnByName("QUANTITY")).refresh();
+        copied.getColumnByName("QUANTITY").setValues(Arrays.asList("12000000", "-5", "7"));
+        Assert.assertEquals(copied.generate(), extracted.generate());
+    }
+
+    @Test
+    public void testMemoizedValuesAreExtractedOnce() {
+        int[] calls = new int[1];
+        List<String> source = Arrays.asList("a", "bb", "ccc");
+        ExtractorColumn<String> column = new ExtractorColumn<>("VALUE", source, value -> {
+            calls[0]++;
+            return value.toUpperCase();
+        });
+        column.setMemoized(true);
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(column);
+        generator.generate();
+        generator.generate();
+        Assert.assertEquals(3, calls[0]);
+        Assert.assertEquals(Arrays.asList("A", "BB", "CCC"), column.getValues());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testValuesCannotBeAdded() {
+        new ExtractorColumn<String>("VALUE", new ArrayList<>(), value -> value).addValue("x");
+    }
+
+    @Test
+    public void testAddRowLeavesMixedTableUnchanged() {
+        List<Order> orders = new ArrayList<>(Arrays.asList(new Order("Acme", 1200)));
+        TextTableGenerator generator = new TextTableGenerator();
+        TextTableColumn notes = new TextTableColumn("NOTES");
+        generator.addColumn(notes);
+        generator.addColumn(new ExtractorColumn<Order>("CUSTOMER", orders, order -> order.customer));
+        notes.addValue("first");
+        String table = generator.generate();
+        try {
+            generator.addRow(Arrays.asList("second", "Globex"));
+            Assert.fail("addRow should reject a read-only column");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertEquals(1, notes.getNumRows());
+        Assert.assertEquals(1, generator.getNumRows());
+        Assert.assertEquals(table, generator.generate());
+    }
+}
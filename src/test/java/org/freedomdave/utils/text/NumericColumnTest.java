@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class NumericColumnTest {
+    @Test
+    public void testLongColumnFormatting() {
+        LongColumn column = new LongColumn("COUNT");
+        column.addLong(0);
+        column.addLong(-42);
+        column.addLong(Long.MIN_VALUE);
+        column.addValue("");
+        column.addValue("1,234");
+        Assert.assertEquals(Arrays.asList("0", "-42", "-9223372036854775808", "", "1234"), column.getValues());
+        Assert.assertEquals(20, column.getWidth());
+        Assert.assertTrue(column.isEmpty(3));
+
+        column.setGrouping(true);
+        Assert.assertEquals("-9,223,372,036,854,775,808", column.getRowValue(2));
+        Assert.assertEquals("1,234", column.getRowValue(4));
+        Assert.assertEquals(26, column.getWidth());
+    }
+
+    @Test
+    public void testDoubleColumnFormatting() {
+        DoubleColumn column = new DoubleColumn("AMOUNT");
+        column.addDouble(1234567.125);
+        column.addDouble(-0.004);
+        column.addDouble(-3.5);
+        column.addDouble(Double.NaN);
+        column.addDouble(1e20);
+        column.setGrouping(true);
+        Assert.assertEquals(Arrays.asList("1,234,567.13", "0.00", "-3.50", "NaN", "100,000,000,000,000,000,000.00"),
+                column.getValues());
+        Assert.assertEquals(30, column.getWidth());
+
+        column.setDecimalPlaces(0);
+        column.setGrouping(false);
+        Assert.assertEquals("1234567", column.getRowValue(0));
+        Assert.assertEquals("-4", column.getRowValue(2));
+    }
+
+    @Test
+    public void testNumericColumnsRenderLikeStringColumns() {
+        TextTableGenerator numeric = new TextTableGenerator();
+        LongColumn ids = new LongColumn("ID");
+        DoubleColumn amounts = new DoubleColumn("AMOUNT");
+        amounts.setGrouping(true);
+        amounts.setWidth(8);
+        numeric.addColumn(ids);
+        numeric.addColumn(amounts);
+        numeric.addColumn(new TextTableColumn("NOTE"));
+
+        TextTableGenerator strings = new TextTableGenerator();
+        strings.addColumn(new TextTableColumn("ID"));
+        strings.addColumn(new TextTableColumn("AMOUNT"));
+        strings.addColumn(new TextTableColumn("NOTE"));
+        strings.getColumnByIndex(0).setAlignment(TextFormatter.Alignment.RIGHT);
+        strings.getColumnByIndex(1).setAlignment(TextFormatter.Alignment.RIGHT);
+        strings.getColumnByIndex(1).setWidth(8);
+
+        String[][] rows = {
+                {"1", "12.5", "first"},
+                {"22", "", "second"},
+                {"-333", "1,000,000", "third"},
+        };
+        String[][] formatted = {
+                {"1", "12.50", "first"},
+                {"22", "", "second"},
+                {"-333", "1,000,000.00", "third"},
+        };
+        for (int i = 0; i < rows.length; i++) {
+            numeric.addRow(Arrays.asList(rows[i]));
+            strings.addRow(Arrays.asList(formatted[i]));
+        }
+        numeric.addRow(Arrays.asList("4"));
+        strings.addRow(Arrays.asList("4"));
+        Assert.assertEquals(strings.generate(), numeric.generate());
+    }
+}
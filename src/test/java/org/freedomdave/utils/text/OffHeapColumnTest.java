@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class OffHeapColumnTest {
+    private static final List<String> VALUES = Arrays.asList("Jane Doe", "", "Zo\u00eb \u00c5ngstr\u00f6m",
+            "\u5f00\u53d1\u8005", "\ud83d\udcb0 Sales", TextFormatter.fill(300, 'x'));
+
+    @Test
+    public void testValuesRoundTrip() {
+        try (OffHeapColumn column = new OffHeapColumn("NAME", 64)) {
+            column.addValues(VALUES);
+            Assert.assertEquals(VALUES, column.getValues());
+            Assert.assertEquals(300, column.getWidth());
+            Assert.assertTrue(column.getAllocatedBytes() >= 300);
+            column.clear();
+            Assert.assertEquals(0, column.getNumRows());
+            Assert.assertEquals(0, column.getAllocatedBytes());
+        }
+    }
+
+    @Test
+    public void testRendersLikePlainColumn() {
+        try (TextTableGenerator offHeap = new TextTableGenerator()) {
+            TextTableGenerator plain = new TextTableGenerator();
+            offHeap.addColumn(new OffHeapColumn("NAME"));
+            plain.addColumn(new TextTableColumn("NAME"));
+            for (String value : VALUES) {
+                offHeap.addRow(Arrays.asList(value));
+                plain.addRow(Arrays.asList(value));
+            }
+            for (TextTableGenerator generator : Arrays.asList(offHeap, plain)) {
+                generator.getColumnByName("NAME").setAlignment(TextFormatter.Alignment.RIGHT);
+            }
+            Assert.assertEquals(plain.generate(), offHeap.generate());
+            for (TextTableGenerator generator : Arrays.asList(offHeap, plain)) {
+                generator.getColumnByName("NAME").setWidth(9);
+            }
+            Assert.assertEquals(plain.generate(), offHeap.generate());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedColumnCannotBeUsed() {
+        OffHeapColumn column = new OffHeapColumn("NAME");
+        column.close();
+        column.addValue("Jane Doe");
+    }
+
+    private static class FailingColumn extends TextTableColumn implements AutoCloseable {
+        FailingColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        public void close() {
+            throw new IllegalStateException(getName());
+        }
+    }
+
+    @Test
+    public void testTableClosesEveryColumn() {
+        TextTableGenerator generator = new TextTableGenerator();
+        OffHeapColumn column = new OffHeapColumn("NAME");
+        generator.addColumn(new FailingColumn("FIRST"));
+        generator.addColumn(column);
+        generator.addColumn(new FailingColumn("LAST"));
+        try {
+            generator.close();
+            Assert.fail("close should rethrow the column failures");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("FIRST", e.getMessage());
+            Assert.assertEquals(1, e.getSuppressed().length);
+            Assert.assertEquals("LAST", e.getSuppressed()[0].getMessage());
+        }
+        try {
+            column.addValue("Jane Doe");
+            Assert.fail("the off-heap column should have been closed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
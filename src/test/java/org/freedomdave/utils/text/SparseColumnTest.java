@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SparseColumnTest {
+    @Test
+    public void testOnlyNonEmptyValuesAreStored() {
+        SparseColumn column = new SparseColumn("FLAG");
+        column.addValues(Arrays.asList("", "on", "", "", "off"));
+        Assert.assertEquals(Arrays.asList("", "on", "", "", "off"), column.getValues());
+        Assert.assertEquals(2, column.getNumValues());
+        Assert.assertEquals(5, column.getNumRows());
+        Assert.assertEquals(4, column.getWidth());
+        column.padTo(1_000_000);
+        Assert.assertEquals(1_000_000, column.getNumRows());
+        Assert.assertEquals(2, column.getNumValues());
+    }
+
+    @Test
+    public void testRendersLikePlainColumns() {
+        TextTableGenerator sparse = new TextTableGenerator();
+        TextTableGenerator plain = new TextTableGenerator();
+        for (int i = 0; i < 20; i++) {
+            sparse.addColumn(new SparseColumn("F" + i));
+            plain.addColumn(new TextTableColumn("F" + i));
+        }
+        sparse.addColumn(new LongColumn("COUNT"));
+        plain.addColumn(new LongColumn("COUNT"));
+        for (int row = 0; row < 100; row++) {
+            // rows only reach as far as their last value, so earlier columns are padded
+            int last = (row * 7) % 21;
+            String[] values = new String[last + 1];
+            Arrays.fill(values, "");
+            values[last] = (last == 20) ? Integer.toString(row) : "x";
+            for (TextTableGenerator generator : Arrays.asList(sparse, plain)) {
+                generator.addRow(Arrays.asList(values));
+            }
+        }
+        sparse.addRow(Collections.singletonList("last"));
+        plain.addRow(Collections.singletonList("last"));
+        Assert.assertEquals(101, sparse.getNumRows());
+        Assert.assertEquals(plain.generate(), sparse.generate());
+    }
+
+    @Test
+    public void testEmptyRowsAreCopiedFromTemplate() {
+        final int[] rendered = new int[1];
+        SparseColumn column = new SparseColumn("FLAG") {
+            @Override
+            protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+                rendered[0]++;
+                return super.appendFittedValue(sb, row, width);
+            }
+        };
+        TextTableGenerator sparse = new TextTableGenerator();
+        TextTableGenerator plain = new TextTableGenerator();
+        sparse.addColumn(column);
+        sparse.addColumn(new TextTableColumn("ID"));
+        plain.addColumn(new TextTableColumn("FLAG"));
+        plain.addColumn(new TextTableColumn("ID"));
+        for (int row = 0; row < 100; row++) {
+            String flag = (row % 10 == 0) ? "on" : "";
+            sparse.addRow(Arrays.asList(flag, Integer.toString(row)));
+            plain.addRow(Arrays.asList(flag, Integer.toString(row)));
+        }
+        Assert.assertEquals(plain.generate(), sparse.generate());
+        // only the non-empty cells are rendered by the column
+        Assert.assertEquals(10, rendered[0]);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SpillingColumnTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> values(int count) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add((i % 7 == 0) ? "\u5f00\u53d1\u8005 " + i : "Employee " + i);
+        }
+        // larger than the read and write buffers
+        values.add(TextFormatter.fill(1_500_000, 'x'));
+        values.add("last");
+        return values;
+    }
+
+    @Test
+    public void testSpillsPastThreshold() {
+        File directory = folder.getRoot();
+        List<String> values = values(5000);
+        try (SpillingColumn column = new SpillingColumn("NAME", 4096, directory.toPath())) {
+            column.addValues(values.subList(0, 10));
+            Assert.assertFalse(column.isSpilled());
+            column.addValues(values.subList(10, values.size()));
+            Assert.assertTrue(column.isSpilled());
+            Assert.assertEquals(values.size(), column.getNumRows());
+            Assert.assertEquals(1_500_000, column.getWidth());
+            Assert.assertEquals(values, column.getValues());
+            Assert.assertEquals("\u5f00\u53d1\u8005 4998", column.getRowValue(4998));
+        }
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testRendersLikePlainColumn() {
+        List<String> values = values(2000);
+        try (TextTableGenerator spilled = new TextTableGenerator()) {
+            TextTableGenerator plain = new TextTableGenerator();
+            spilled.addColumn(new SpillingColumn("NAME", 0, folder.getRoot().toPath()));
+            plain.addColumn(new TextTableColumn("NAME"));
+            for (String value : values) {
+                spilled.addRow(Arrays.asList(value));
+                plain.addRow(Arrays.asList(value));
+            }
+            for (TextTableGenerator generator : Arrays.asList(spilled, plain)) {
+                generator.getColumnByName("NAME").setWidth(12);
+            }
+            Assert.assertEquals(plain.generate(), spilled.generate());
+        }
+        Assert.assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testRendersInParallel() {
+        try (TextTableGenerator spilled = new TextTableGenerator()) {
+            TextTableGenerator plain = new TextTableGenerator();
+            spilled.addColumn(new SpillingColumn("NAME", 0, folder.getRoot().toPath()));
+            plain.addColumn(new TextTableColumn("NAME"));
+            for (int i = 0; i < 20000; i++) {
+                // single-column values, so the table is rendered in parallel
+                List<String> row = Arrays.asList("Employee " + i);
+                spilled.addRow(row);
+                plain.addRow(row);
+            }
+            spilled.setParallelThreshold(1);
+            Assert.assertTrue(((SpillingColumn) spilled.getColumnByName("NAME")).isSpilled());
+            Assert.assertEquals(plain.generate(), spilled.generateParallel());
+        }
+        Assert.assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testFailedSpillKeepsValuesInMemory() {
+        File missing = new File(folder.getRoot(), "missing");
+        List<String> values = values(100);
+        try (SpillingColumn column = new SpillingColumn("NAME", 4096, missing.toPath())) {
+            try {
+                column.addValues(values);
+                Assert.fail("spilling to a missing directory should fail");
+            } catch (UncheckedIOException e) {
+                // expected
+            }
+            Assert.assertFalse(column.isSpilled());
+            int rows = column.getNumRows();
+            Assert.assertTrue(rows > 0);
+            Assert.assertEquals(values.subList(0, rows), column.getValues());
+            Assert.assertEquals(values.get(rows - 1), column.getRowValue(rows - 1));
+        }
+        Assert.assertEquals(0, folder.getRoot().list().length);
+    }
+}
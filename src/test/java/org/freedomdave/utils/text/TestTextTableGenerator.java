@@ -16,11 +16,27 @@
 package org.freedomdave.utils.text;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 public class TestTextTableGenerator {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     @Test
     public void testTableGenerator() {
@@ -48,4 +64,419 @@ public class TestTextTableGenerator {
         String actual = generator.generate();
         Assert.assertEquals(expected, actual);
     }
+
+    private static final String EMPLOYEES = "+---------------+-------------+------------------+\n"
+            + "|   EMPLOYEE    |  JOB TITLE  |      SALARY      |\n"
+            + "+---------------+-------------+------------------+\n"
+            + "|  Jane Doe     |  CEO        |      $1,200,000  |\n"
+            + "|  John Doe     |  Developer  |         $51,232  |\n"
+            + "|  Joe Sellers  |  Sales      |  (Base) $20,000  |\n"
+            + "+---------------+-------------+------------------+\n";
+
+    private static TextTableGenerator schema() {
+        return schema(new TextTableGenerator());
+    }
+
+    private static TextTableGenerator schema(TextTableGenerator generator) {
+        generator.addColumn(new TextTableColumn("EMPLOYEE"));
+        generator.addColumn(new TextTableColumn("JOB TITLE"));
+        generator.addColumn(new TextTableColumn("SALARY"));
+        generator.getColumnByName("SALARY").setAlignment(TextFormatter.Alignment.RIGHT);
+        return generator;
+    }
+
+    private static TextTableGenerator employees(TextTableGenerator generator) {
+        schema(generator);
+        generator.addRow(Arrays.asList("Jane Doe", "CEO", "$1,200,000"));
+        generator.addRow(Arrays.asList("John Doe", "Developer", "$51,232"));
+        generator.addRow(Arrays.asList("Joe Sellers", "Sales", "(Base) $20,000"));
+        return generator;
+    }
+
+    @Test
+    public void testWriteToWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        employees(new TextTableGenerator()).writeTo(writer);
+        Assert.assertEquals(EMPLOYEES, writer.toString());
+    }
+
+    @Test
+    public void testGenerateToAppendable() throws IOException {
+        StringBuffer buffer = new StringBuffer();
+        employees(new TextTableGenerator()).generate(buffer);
+        Assert.assertEquals(EMPLOYEES, buffer.toString());
+    }
+
+    @Test
+    public void testOverriddenHooksAreUsed() {
+        TextTableGenerator generator = employees(new TextTableGenerator() {
+            @Override
+            protected String generateCell(TextField cell) {
+                return super.generateCell(cell).toLowerCase();
+            }
+        });
+        Assert.assertEquals(EMPLOYEES.toLowerCase(), generator.generate());
+    }
+
+    @Test
+    public void testGenerateFromRows() throws IOException {
+        List<List<String>> rows = Arrays.asList(
+                Arrays.asList("Jane Doe", "CEO", "$1,200,000"),
+                Arrays.asList("John Doe", "Developer", "$51,232"),
+                Arrays.asList("Joe Sellers", "Sales", "(Base) $20,000"));
+        StringBuilder sb = new StringBuilder();
+        schema().generate(rows.iterator(), 10, sb);
+        Assert.assertEquals(EMPLOYEES, sb.toString());
+    }
+
+    @Test
+    public void testGenerateFromStreamTruncatesAfterLookAhead() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        expected.append("+------------+-------------+----------+\n");
+        expected.append("|  EMPLOYEE  |  JOB TITLE  |  SALARY  |\n");
+        expected.append("+------------+-------------+----------+\n");
+        expected.append("|  Jane Doe  |  CEO        |  $1,...  |\n");
+        expected.append("|  Joe S...  |  Sales      |          |\n");
+        expected.append("+------------+-------------+----------+\n");
+
+        Stream<String[]> rows = Stream.of(
+                new String[]{"Jane Doe", "CEO", "$1,200,000"},
+                new String[]{"Joe Sellers", "Sales"});
+        TextTableGenerator generator = schema();
+        generator.getColumnByName("SALARY").setWidth(6);
+        generator.getColumnByName("JOB TITLE").getValues().add("Developer");
+        StringBuilder sb = new StringBuilder();
+        generator.generate(rows, 1, sb);
+        Assert.assertEquals(expected.toString(), sb.toString());
+    }
+
+    @Test
+    public void testGenerateParallel() {
+        TextTableGenerator generator = schema();
+        for (int i = 0; i < 5000; i++) {
+            generator.addRow(Arrays.asList("Employee " + i, (i % 7 == 0) ? "Developer" : "Sales", "$" + (i * 31)));
+        }
+        generator.setParallelThreshold(100);
+        Assert.assertEquals(generator.generate(), generator.generateParallel());
+    }
+
+    @Test
+    public void testGenerateToFile() throws IOException {
+        Path path = folder.newFile("table.txt").toPath();
+        employees(new TextTableGenerator()).generateTo(path);
+        Assert.assertEquals(EMPLOYEES, new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGenerateToFileCharsets() throws IOException {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("NAME"));
+        generator.addRow(Arrays.asList("Zo\u00eb M\u00fcller"));
+        String table = generator.generate();
+        Path utf8 = folder.newFile("utf8.txt").toPath();
+        generator.generateTo(utf8);
+        Assert.assertArrayEquals(table.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(utf8));
+        Path latin1 = folder.newFile("latin1.txt").toPath();
+        generator.generateTo(latin1, StandardCharsets.ISO_8859_1);
+        Assert.assertArrayEquals(table.getBytes(StandardCharsets.ISO_8859_1), Files.readAllBytes(latin1));
+    }
+
+    @Test
+    public void testRenderListener() {
+        List<RenderStats> renders = new ArrayList<>();
+        RenderStatsAggregator aggregator = new RenderStatsAggregator();
+        TextTableGenerator generator = employees(new TextTableGenerator());
+        generator.getColumnByName("SALARY").setWidth(8);
+        generator.setRenderListener(stats -> {
+            renders.add(stats);
+            aggregator.renderCompleted(stats);
+        });
+
+        String table = generator.generate();
+        generator.setParallelThreshold(0);
+        generator.generateParallel();
+
+        Assert.assertEquals(2, renders.size());
+        for (RenderStats stats : renders) {
+            Assert.assertEquals(3, stats.getRows());
+            Assert.assertEquals(3, stats.getColumns());
+            Assert.assertEquals(table.length(), stats.getOutputChars());
+            Assert.assertEquals(-1, stats.getOutputBytes());
+            Assert.assertEquals(2, stats.getTruncatedCells());
+        }
+        Assert.assertEquals(2, aggregator.getRenderCount());
+        Assert.assertEquals(6, aggregator.getTotalRows());
+        Assert.assertEquals(2, aggregator.getRowsHistogram()[2]);
+    }
+
+    @Test
+    public void testRenderListenerCountsBytes() throws IOException {
+        List<RenderStats> renders = new ArrayList<>();
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("NAME"));
+        generator.addRow(Arrays.asList("Zo\u00eb"));
+        generator.setRenderListener(renders::add);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        long bytes = generator.writeTo(stream);
+        Path path = folder.newFile("table.txt").toPath();
+        generator.generateTo(path);
+
+        Assert.assertEquals(2, renders.size());
+        Assert.assertEquals(stream.size(), bytes);
+        Assert.assertEquals(bytes, renders.get(0).getOutputBytes());
+        Assert.assertEquals(bytes - 1, renders.get(0).getOutputChars());
+        Assert.assertEquals(Files.size(path), renders.get(1).getOutputBytes());
+    }
+
+    @Test
+    public void testPages() {
+        StringBuilder header = new StringBuilder();
+        header.append("+---------------+-------------+------------------+\n");
+        header.append("|   EMPLOYEE    |  JOB TITLE  |      SALARY      |\n");
+        header.append("+---------------+-------------+------------------+\n");
+        String line = "+---------------+-------------+------------------+\n";
+
+        TextTableGenerator generator = employees(new TextTableGenerator());
+        Iterator<String> pages = generator.pages(2);
+        Assert.assertEquals(header + "|  Jane Doe     |  CEO        |      $1,200,000  |\n"
+                + "|  John Doe     |  Developer  |         $51,232  |\n" + line, pages.next());
+        Assert.assertEquals(header + "|  Joe Sellers  |  Sales      |  (Base) $20,000  |\n" + line, pages.next());
+        Assert.assertFalse(pages.hasNext());
+        Assert.assertEquals(header + line, generator.generatePage(5, 2));
+    }
+
+    @Test
+    public void testWidthsFollowColumnChanges() {
+        TextTableGenerator generator = employees(new TextTableGenerator());
+        Assert.assertEquals(EMPLOYEES, generator.generate());
+        generator.getColumnByName("EMPLOYEE").getValues().set(0, "Jane Q. Doe-Smith");
+        String table = generator.generate();
+        Assert.assertTrue(table.startsWith("+---------------------+"));
+        generator.getColumnByName("EMPLOYEE").getValues().set(0, "Jane Doe");
+        Assert.assertEquals(EMPLOYEES, generator.generate());
+    }
+
+    @Test
+    public void testCompiledLayout() throws InterruptedException {
+        TextTableGenerator generator = employees(new TextTableGenerator());
+        TextTableLayout layout = generator.compileLayout();
+        Assert.assertEquals(2, layout.indexOf("SALARY"));
+        Assert.assertEquals(-1, layout.indexOf("MISSING"));
+
+        List<List<String>> rows = Arrays.asList(
+                Arrays.asList("Jane Doe", "CEO", "$1,200,000"),
+                Arrays.asList("John Doe", "Developer", "$51,232"),
+                Arrays.asList("Joe Sellers", "Sales", "(Base) $20,000"));
+        String[] results = new String[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> results[index] = layout.render(rows));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (String result : results) {
+            Assert.assertEquals(EMPLOYEES, result);
+        }
+
+        String padded = layout.withPadChar(0, '.').render(Arrays.asList(Arrays.asList("Jo")));
+        Assert.assertTrue(padded.contains("|  Jo.........  |"));
+        // the header is not affected by the pad char
+        Assert.assertTrue(padded.contains("|   EMPLOYEE    |"));
+    }
+
+    @Test
+    public void testUtf8Output() throws IOException {
+        TextTableGenerator generator = employees(new TextTableGenerator());
+        generator.addRow(Arrays.asList("Zo\u00eb \u00c5ngstr\u00f6m", "\u5f00\u53d1\u8005", "\ud83d\udcb0 \ud800"));
+        byte[] expected = generator.generate().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Assert.assertEquals(expected.length, generator.writeTo(stream));
+        Assert.assertArrayEquals(expected, stream.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length);
+        for (int i = 0; i < 2; i++) {
+            buffer.clear();
+            Assert.assertEquals(expected.length, generator.writeTo(buffer));
+            byte[] actual = new byte[expected.length];
+            buffer.flip();
+            buffer.get(actual);
+            Assert.assertArrayEquals(expected, actual);
+        }
+
+        try {
+            generator.writeTo(ByteBuffer.allocate(expected.length - 1));
+            Assert.fail("Expected BufferOverflowException");
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWideCharactersAlign() {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("NAME"));
+        generator.addRow(Arrays.asList("\u5f00\u53d1\u8005"));
+        generator.addRow(Arrays.asList("Zoe\u0301"));
+        generator.addRow(Arrays.asList("Joe"));
+        String expected = "+----------+\n"
+                + "|   NAME   |\n"
+                + "+----------+\n"
+                + "|  \u5f00\u53d1\u8005  |\n"
+                + "|  Zoe\u0301     |\n"
+                + "|  Joe     |\n"
+                + "+----------+\n";
+        Assert.assertEquals(expected, generator.generate());
+
+        // rows are no longer a fixed number of characters, so parallel rendering falls back
+        generator.setParallelThreshold(1);
+        Assert.assertEquals(expected, generator.generateParallel());
+    }
+
+    @Test
+    public void testGenerateParallelRendersWideTablesOnce() {
+        int[] rendered = new int[1];
+        TextTableColumn counted = new TextTableColumn("NAME") {
+            @Override
+            protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+                rendered[0]++;
+                return super.appendFittedValue(sb, row, width);
+            }
+        };
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(counted);
+        generator.setParallelThreshold(1);
+        for (int i = 0; i < 100; i++) {
+            generator.addRow(Arrays.asList("Joe " + i));
+        }
+        generator.generateParallel();
+        Assert.assertEquals(100, rendered[0]);
+
+        counted.getValues().set(50, "\u5f00\u53d1\u8005");
+        rendered[0] = 0;
+        Assert.assertEquals(generator.generate(), generator.generateParallel());
+        Assert.assertEquals(200, rendered[0]);
+
+        counted.getValues().set(50, "Joe");
+        Assert.assertFalse(counted.hasVariableWidthValues());
+    }
+
+    @Test
+    public void testStreamingWithBoundedWidthPolicy() throws IOException {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("ID"));
+        generator.setWidthPolicy(WidthPolicy.EXACT.withBounds(6, 6));
+        StringBuilder sb = new StringBuilder();
+        generator.generate(Arrays.asList(Arrays.asList("1"), Arrays.asList("1234567890")).iterator(), 0, sb);
+        String expected = "+----------+\n"
+                + "|    ID    |\n"
+                + "+----------+\n"
+                + "|  1       |\n"
+                + "|  123...  |\n"
+                + "+----------+\n";
+        Assert.assertEquals(expected, sb.toString());
+    }
+
+    @Test
+    public void testOutputCacheRerendersChangedBlocks() {
+        int[] rendered = new int[1];
+        TextTableColumn counted = new TextTableColumn("ID") {
+            @Override
+            protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+                rendered[0]++;
+                return super.appendFittedValue(sb, row, width);
+            }
+        };
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(counted);
+        generator.addColumn(new TextTableColumn("NAME"));
+        for (int i = 0; i < 1000; i++) {
+            generator.addRow(Arrays.asList(String.format("%04d", i), "name" + i));
+        }
+        String uncached = generator.generate();
+        generator.setOutputCacheCapacity(1 << 20);
+        rendered[0] = 0;
+        String table = generator.generate();
+        Assert.assertEquals(uncached, table);
+        Assert.assertEquals(1000, rendered[0]);
+
+        // unchanged tables are returned as is
+        Assert.assertSame(table, generator.generate());
+        Assert.assertEquals(1000, rendered[0]);
+
+        // only the block holding the changed row is rendered again
+        counted.getValues().set(600, "X600");
+        table = generator.generate();
+        Assert.assertEquals(256, rendered[0] - 1000);
+        Assert.assertTrue(table.contains("|  X600  |"));
+
+        // appending re-renders the last block only
+        rendered[0] = 0;
+        generator.addRow(Arrays.asList("1000", "name"));
+        table = generator.generate();
+        Assert.assertEquals(1001 - 768, rendered[0]);
+        generator.setOutputCacheCapacity(0);
+        Assert.assertEquals(generator.generate(), table);
+
+        // a width change discards the whole cache
+        generator.setOutputCacheCapacity(1 << 20);
+        generator.generate();
+        counted.setWidth(2);
+        rendered[0] = 0;
+        generator.generate();
+        Assert.assertEquals(1001, rendered[0]);
+    }
+
+    @Test
+    public void testOutputCacheKeepsPrefixWithinCapacity() {
+        int[] rendered = new int[1];
+        TextTableColumn counted = new TextTableColumn("ID") {
+            @Override
+            protected boolean appendFittedValue(StringBuilder sb, int row, int width) {
+                rendered[0]++;
+                return super.appendFittedValue(sb, row, width);
+            }
+        };
+        List<RenderStats> renders = new ArrayList<>();
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(counted);
+        for (int i = 0; i < 1000; i++) {
+            generator.addRow(Arrays.asList(String.valueOf(i)));
+        }
+        String expected = generator.generate();
+        generator.setOutputCacheCapacity(4096);
+        generator.setRenderListener(renders::add);
+        Assert.assertEquals(4096, generator.getOutputCacheCapacity());
+        rendered[0] = 0;
+        Assert.assertEquals(expected, generator.generate());
+        Assert.assertEquals(1000, rendered[0]);
+        // only the first of the four blocks fits, and every call reuses it
+        for (int i = 1; i <= 2; i++) {
+            Assert.assertEquals(expected, generator.generate());
+            Assert.assertEquals(1000 + i * 744, rendered[0]);
+        }
+        for (RenderStats stats : renders) {
+            Assert.assertEquals(1000, stats.getRows());
+            Assert.assertEquals(expected.length(), stats.getOutputChars());
+        }
+        // changing the first block leaves nothing to reuse on the next call, but caches it again
+        generator.getColumnByIndex(0).getValues().set(0, "first");
+        rendered[0] = 0;
+        String table = generator.generate();
+        Assert.assertTrue(table.contains("|  first  |"));
+        Assert.assertEquals(1000, rendered[0]);
+        Assert.assertNotSame(table, generator.generate());
+        Assert.assertEquals(table, generator.generate());
+        Assert.assertEquals(1000 + 2 * 744, rendered[0]);
+        Assert.assertEquals(6, renders.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOutputCacheCapacity() {
+        new TextTableGenerator().setOutputCacheCapacity(-1);
+    }
 }
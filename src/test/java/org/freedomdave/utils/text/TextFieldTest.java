@@ -42,4 +42,85 @@ public class TextFieldTest {
         TextField textField = new TextField("Hello World!", 8, TextFormatter.Alignment.CENTER);
         Assert.assertEquals("Hello...", textField.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFitIntoBuffer() {
+        StringBuilder sb = new StringBuilder("[");
+        Assert.assertFalse(TextField.fit(sb, "Hello", 8, TextFormatter.Alignment.RIGHT, '.'));
+        Assert.assertTrue(TextField.fit(sb, "Hello World!", 8, TextFormatter.Alignment.LEFT, ' '));
+        Assert.assertEquals("[...HelloHello...", sb.toString());
+    }
+
+    @Test
+    public void testFitIntoArray() {
+        char[] dst = new char[18];
+        int offset = TextField.fit(dst, 0, "Hello", 9, TextFormatter.Alignment.CENTER, ' ');
+        Assert.assertEquals(9, offset);
+        offset = TextField.fit(dst, offset, "Hello World!", 9, TextFormatter.Alignment.LEFT, ' ');
+        Assert.assertEquals(18, offset);
+        Assert.assertEquals("  Hello  Hello ...", new String(dst));
+    }
+
+    @Test
+    public void testFitNarrowerThanEllipsis() {
+        TextField textField = new TextField("Hello World!", 2);
+        Assert.assertEquals("..", textField.getFittedText());
+    }
+
+    @Test
+    public void testFillLongerThanCachedRun() {
+        StringBuilder sb = new StringBuilder();
+        TextFormatter.fill(sb, 600, '-');
+        Assert.assertEquals(600, sb.length());
+        Assert.assertEquals(-1, sb.indexOf(" "));
+        Assert.assertEquals(TextFormatter.fill(600, '*').replace('*', '-'), sb.toString());
+        Assert.assertEquals("", TextFormatter.fill(-1, ' '));
+    }
+
+    @Test
+    public void testDisplayWidth() {
+        Assert.assertEquals(12, TextFormatter.displayWidth("Hello World!"));
+        Assert.assertEquals(4, TextFormatter.displayWidth("Zo\u00eb!"));
+        // wide CJK characters, a combining accent and an emoji outside the BMP
+        Assert.assertEquals(6, TextFormatter.displayWidth("\u5f00\u53d1\u8005"));
+        Assert.assertEquals(4, TextFormatter.displayWidth("Zoe\u0301!"));
+        Assert.assertEquals(3, TextFormatter.displayWidth("\ud83d\udcb0!"));
+        // ZWJ family emoji and a regional indicator flag each take two columns
+        Assert.assertEquals(2, TextFormatter.displayWidth("\ud83d\udc68\u200d\ud83d\udc69\u200d\ud83d\udc67"));
+        Assert.assertEquals(2, TextFormatter.displayWidth("\ud83c\uddec\ud83c\udde7"));
+        // the emoji presentation selector makes a narrow symbol two columns wide
+        Assert.assertEquals(1, TextFormatter.displayWidth("\u2764"));
+        Assert.assertEquals(2, TextFormatter.displayWidth("\u2764\ufe0f"));
+        Assert.assertEquals(3, TextFormatter.displayWidth("\u2764\ufe0f!"));
+        // as does it after a Latin-1 character or a digit
+        Assert.assertEquals(2, TextFormatter.displayWidth("\u00a9\ufe0f"));
+        Assert.assertEquals(6, TextFormatter.displayWidth("(c) \u00ae\ufe0f"));
+        Assert.assertEquals(4, TextFormatter.displayWidth("1\ufe0f2\ufe0f"));
+        Assert.assertEquals(2, TextFormatter.displayWidth("e\u0301\u00e9"));
+    }
+
+    @Test
+    public void testFitWideAndCombiningCharacters() {
+        Assert.assertEquals("  \u5f00\u53d1  ",
+                new TextField("\u5f00\u53d1", 8, TextFormatter.Alignment.CENTER).getFittedText());
+        Assert.assertEquals("Zoe\u0301  ", new TextField("Zoe\u0301", 5).getFittedText());
+        // the accent stays with its letter and a wide character is never split
+        Assert.assertEquals("Zoe\u0301...", new TextField("Zoe\u0301 Smith", 6).getFittedText());
+        Assert.assertEquals("\u5f00 ...", new TextField("\u5f00\u53d1\u8005!", 6).getFittedText());
+        Assert.assertEquals("\ud83d\udcb0 ...",
+                new TextField("\ud83d\udcb0\ud83d\udcb0\ud83d\udcb0\ud83d\udcb0", 6).getFittedText());
+        Assert.assertEquals("\u2764\ufe0f ...",
+                new TextField("\u2764\ufe0f\u2764\ufe0f\u2764\ufe0f\u2764\ufe0f", 6).getFittedText());
+        Assert.assertEquals("\u00a9\ufe0f  ", new TextField("\u00a9\ufe0f", 4).getFittedText());
+        Assert.assertEquals("\u00a9\ufe0f\u00ae\ufe0f", new TextField("\u00a9\ufe0f\u00ae\ufe0f", 4).getFittedText());
+        // the straddling character is replaced with the pad character
+        StringBuilder sb = new StringBuilder();
+        TextField.fit(sb, "\u5f00\u53d1\u8005!", 6, TextFormatter.Alignment.LEFT, '.');
+        Assert.assertEquals("\u5f00....", sb.toString());
+
+        char[] dst = new char[6];
+        int end = TextField.fit(dst, 0, "\u5f00\u53d1\u8005!", 6, TextFormatter.Alignment.LEFT, '.');
+        Assert.assertEquals(5, end);
+        Assert.assertEquals("\u5f00....", new String(dst, 0, 5));
+    }
+}
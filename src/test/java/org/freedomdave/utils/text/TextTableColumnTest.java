@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TextTableColumnTest {
+    @Test
+    public void testAutoWidthTracksAddedValues() {
+        TextTableColumn column = new TextTableColumn("ID");
+        Assert.assertEquals(2, column.getWidth());
+        column.addValue("1234");
+        Assert.assertEquals(4, column.getWidth());
+        column.addValues(Arrays.asList("1", "123456"));
+        Assert.assertEquals(6, column.getWidth());
+        column.clear();
+        Assert.assertEquals(2, column.getWidth());
+    }
+
+    @Test
+    public void testAutoWidthTracksChangesThroughValues() {
+        TextTableColumn column = new TextTableColumn("ID", new ArrayList<>(Arrays.asList("1", "12345", "123")));
+        Assert.assertEquals(5, column.getWidth());
+        column.getValues().set(1, "1");
+        Assert.assertEquals(3, column.getWidth());
+        column.getValues().remove(2);
+        Assert.assertEquals(2, column.getWidth());
+        column.getValues().add("1234567");
+        Assert.assertEquals(7, column.getWidth());
+        column.getValues().subList(0, 3).clear();
+        Assert.assertEquals(2, column.getWidth());
+    }
+
+    @Test
+    public void testAutoWidthDetectsChangesToOriginalList() {
+        List<String> values = new ArrayList<>(Arrays.asList("1", "12345"));
+        TextTableColumn column = new TextTableColumn("ID", values);
+        Assert.assertEquals(5, column.getWidth());
+        values.remove(1);
+        Assert.assertEquals(2, column.getWidth());
+        values.add("123456789");
+        Assert.assertEquals(9, column.getWidth());
+        Assert.assertEquals(Arrays.asList("1", "123456789"), column.getValues());
+        // replacing a value in place is seen once the list is set again
+        values.set(1, "1234");
+        column.setValues(values);
+        Assert.assertEquals(4, column.getWidth());
+        column.addValue("1234567");
+        Assert.assertEquals(7, column.getWidth());
+        Assert.assertEquals(Arrays.asList("1", "1234", "1234567"), values);
+    }
+
+    @Test
+    public void testWidthPolicyCapsOutliers() {
+        TextTableColumn column = new TextTableColumn("ID");
+        for (int i = 0; i < 990; i++) {
+            column.addValue("12345");
+        }
+        for (int i = 0; i < 10; i++) {
+            column.addValue(TextFormatter.fill(4096, 'x'));
+        }
+        Assert.assertEquals(4096, column.getWidth());
+        column.setWidthPolicy(WidthPolicy.sampled(1000, 0.99));
+        Assert.assertEquals(5, column.getWidth());
+        // a sample of the values gives the same answer for such a skewed column
+        column.setWidthPolicy(WidthPolicy.sampled(100, 0.9));
+        Assert.assertEquals(5, column.getWidth());
+        column.setWidthPolicy(WidthPolicy.EXACT.withBounds(8, 40));
+        Assert.assertEquals(40, column.getWidth());
+        column.clear();
+        Assert.assertEquals(8, column.getWidth());
+    }
+
+    @Test
+    public void testWidthPolicySamplesDistinctRows() {
+        TextTableColumn column = new TextTableColumn("N");
+        for (int i = 1; i <= 100; i++) {
+            column.addValue(TextFormatter.fill(i, 'x'));
+        }
+        // a sample of 99 distinct rows misses only one value, so the narrowest sampled value
+        // is one of the two narrowest and the widest is one of the two widest
+        column.setWidthPolicy(WidthPolicy.sampled(99, 0.01));
+        Assert.assertTrue(column.getWidth() <= 2);
+        column.setWidthPolicy(WidthPolicy.sampled(99, 1.0));
+        Assert.assertTrue(column.getWidth() >= 99);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullWidthPolicy() {
+        new TextTableColumn("ID").setWidthPolicy(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        WidthPolicy.sampled(100, 0);
+    }
+}
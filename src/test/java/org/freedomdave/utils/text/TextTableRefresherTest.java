@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TextTableRefresherTest {
+    private static final String ESC = "\u001b[";
+
+    private static TextTableGenerator table() {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("ID"));
+        generator.addColumn(new TextTableColumn("NAME"));
+        generator.addRow(Arrays.asList("1", "Jane"));
+        generator.addRow(Arrays.asList("2", "Joe"));
+        return generator;
+    }
+
+    private static String refresh(TextTableRefresher refresher) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        refresher.refresh(sb);
+        return sb.toString();
+    }
+
+    @Test
+    public void testWritesOnlyChangedCells() throws IOException {
+        TextTableGenerator generator = table();
+        TextTableRefresher refresher = new TextTableRefresher(generator);
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+        Assert.assertEquals("", refresh(refresher));
+
+        generator.getColumnByName("NAME").getValues().set(1, "Bob");
+        Assert.assertEquals(ESC + "5;11HBob " + ESC + "7;1H", refresh(refresher));
+
+        generator.getColumnByName("ID").getValues().set(0, "9");
+        generator.getColumnByName("NAME").getValues().set(0, "Jill");
+        StringBuilder sb = new StringBuilder();
+        Assert.assertEquals(2, refresher.refresh(sb));
+        Assert.assertEquals(ESC + "4;4H9 " + ESC + "5CJill" + ESC + "7;1H", sb.toString());
+
+        // setting a cell to the text it already shows writes nothing
+        generator.getColumnByName("ID").getValues().set(0, "9");
+        Assert.assertEquals("", refresh(refresher));
+    }
+
+    @Test
+    public void testAppendsNewRows() throws IOException {
+        TextTableGenerator generator = table();
+        TextTableRefresher refresher = new TextTableRefresher(generator);
+        refresh(refresher);
+        generator.addRow(Arrays.asList("3", "Al"));
+        Assert.assertEquals(ESC + "6;1H|  3   |  Al    |\n+------+--------+\n", refresh(refresher));
+    }
+
+    @Test
+    public void testRedrawsWhenWidthsChange() throws IOException {
+        TextTableGenerator generator = table();
+        TextTableRefresher refresher = new TextTableRefresher(generator);
+        refresh(refresher);
+        generator.addRow(Arrays.asList("3", "Alexander"));
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+
+        generator.setPadding(1);
+        Assert.assertTrue(refresh(refresher).startsWith(ESC + "H" + ESC + "2J"));
+
+        refresher.reset();
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+    }
+
+    @Test
+    public void testRedrawsInFullWhenHooksAreOverridden() throws IOException {
+        TextTableGenerator generator = new TextTableGenerator() {
+            @Override
+            protected String generateRow(int row) {
+                return super.generateRow(row).toUpperCase();
+            }
+        };
+        generator.addColumn(new TextTableColumn("NAME"));
+        generator.addRow(Arrays.asList("jane"));
+        TextTableRefresher refresher = new TextTableRefresher(generator);
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+        Assert.assertTrue(generator.generate().contains("JANE"));
+        Assert.assertEquals("", refresh(refresher));
+        generator.getColumnByName("NAME").getValues().set(0, "joe");
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+    }
+
+    @Test
+    public void testRedrawsInFullWhenTallerThanScreen() throws IOException {
+        TextTableGenerator generator = table();
+        TextTableRefresher refresher = new TextTableRefresher(generator);
+        // three lines above the rows, two rows, the closing line and the cursor line
+        refresher.setScreenHeight(7);
+        refresh(refresher);
+        generator.getColumnByName("NAME").getValues().set(1, "Bob");
+        Assert.assertEquals(ESC + "5;11HBob " + ESC + "7;1H", refresh(refresher));
+
+        generator.addRow(Arrays.asList("3", "Al"));
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+        Assert.assertEquals("", refresh(refresher));
+        generator.getColumnByName("NAME").getValues().set(1, "Joe");
+        Assert.assertEquals(ESC + "H" + ESC + "2J" + generator.generate(), refresh(refresher));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidScreenHeight() {
+        new TextTableRefresher(table()).setScreenHeight(-1);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TextTableTailerTest {
+    private static TextTableGenerator createGenerator() {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("JOB"));
+        generator.addColumn(new TextTableColumn("STATUS"));
+        return generator;
+    }
+
+    @Test
+    public void testFlushWritesOnlyNewRows() throws IOException {
+        TextTableGenerator generator = createGenerator();
+        TextTableTailer tailer = new TextTableTailer(generator);
+        generator.addRow(Arrays.asList("load", "OK"));
+
+        StringBuilder sb = new StringBuilder();
+        Assert.assertEquals(1, tailer.flush(sb));
+        Assert.assertEquals(0, tailer.flush(sb));
+        generator.addRow(Arrays.asList("index", "FAILED"));
+        generator.addRow(Arrays.asList("export", "RETRYING"));
+        Assert.assertEquals(2, tailer.flush(sb));
+        tailer.close(sb);
+
+        StringBuilder expected = new StringBuilder();
+        expected.append("+--------+----------+\n");
+        expected.append("|  JOB   |  STATUS  |\n");
+        expected.append("+--------+----------+\n");
+        expected.append("|  load  |  OK      |\n");
+        expected.append("|  i...  |  FAILED  |\n");
+        expected.append("|  e...  |  RET...  |\n");
+        expected.append("+--------+----------+\n");
+        Assert.assertEquals(expected.toString(), sb.toString());
+    }
+
+    @Test
+    public void testRelayoutWhenWidthsGrow() throws IOException {
+        TextTableGenerator generator = createGenerator();
+        int[] changes = new int[1];
+        TextTableTailer tailer = new TextTableTailer(generator, (locked, current) -> {
+            changes[0]++;
+            return TextTableTailer.WidthChangeAction.RELAYOUT;
+        });
+        generator.addRow(Arrays.asList("load", "OK"));
+        StringBuilder sb = new StringBuilder();
+        tailer.flush(sb);
+        generator.addRow(Arrays.asList("index", "OK"));
+        sb.setLength(0);
+        Assert.assertEquals(2, tailer.flush(sb));
+        Assert.assertEquals(1, changes[0]);
+
+        StringBuilder expected = new StringBuilder();
+        expected.append("+--------+----------+\n");
+        expected.append("+---------+----------+\n");
+        expected.append("|   JOB   |  STATUS  |\n");
+        expected.append("+---------+----------+\n");
+        expected.append("|  load   |  OK      |\n");
+        expected.append("|  index  |  OK      |\n");
+        Assert.assertEquals(expected.toString(), sb.toString());
+    }
+
+    @Test
+    public void testNewColumnClosesTable() throws IOException {
+        TextTableGenerator generator = createGenerator();
+        TextTableTailer tailer = new TextTableTailer(generator);
+        generator.addRow(Arrays.asList("load", "OK"));
+        StringBuilder sb = new StringBuilder();
+        tailer.flush(sb);
+        generator.addColumn(new TextTableColumn("N"));
+        sb.setLength(0);
+        Assert.assertEquals(1, tailer.flush(sb));
+
+        StringBuilder expected = new StringBuilder();
+        expected.append("+--------+----------+\n");
+        expected.append("+--------+----------+-----+\n");
+        expected.append("|  JOB   |  STATUS  |  N  |\n");
+        expected.append("+--------+----------+-----+\n");
+        expected.append("|  load  |  OK      |     |\n");
+        Assert.assertEquals(expected.toString(), sb.toString());
+    }
+
+    @Test
+    public void testHookedGeneratorAlwaysRelayouts() throws IOException {
+        TextTableGenerator generator = new TextTableGenerator() {
+            @Override
+            protected String generateRow(int row) {
+                return super.generateRow(row);
+            }
+        };
+        generator.addColumn(new TextTableColumn("JOB"));
+        TextTableTailer tailer = new TextTableTailer(generator);
+        generator.addRow(Arrays.asList("load"));
+        StringBuilder sb = new StringBuilder();
+        tailer.flush(sb);
+        generator.addRow(Arrays.asList("index"));
+        sb.setLength(0);
+        Assert.assertEquals(2, tailer.flush(sb));
+
+        StringBuilder expected = new StringBuilder();
+        expected.append("+--------+\n");
+        expected.append("+---------+\n");
+        expected.append("|   JOB   |\n");
+        expected.append("+---------+\n");
+        expected.append("|  load   |\n");
+        expected.append("|  index  |\n");
+        Assert.assertEquals(expected.toString(), sb.toString());
+    }
+
+    @Test
+    public void testPaddingChangeRelayouts() throws IOException {
+        TextTableGenerator generator = createGenerator();
+        TextTableTailer tailer = new TextTableTailer(generator);
+        generator.addRow(Arrays.asList("load", "OK"));
+        StringBuilder sb = new StringBuilder();
+        tailer.flush(sb);
+        generator.setPadding(1);
+        generator.addRow(Arrays.asList("sort", "OK"));
+        sb.setLength(0);
+        Assert.assertEquals(2, tailer.flush(sb));
+
+        StringBuilder expected = new StringBuilder();
+        expected.append("+--------+----------+\n");
+        expected.append("+------+--------+\n");
+        expected.append("| JOB  | STATUS |\n");
+        expected.append("+------+--------+\n");
+        expected.append("| load | OK     |\n");
+        expected.append("| sort | OK     |\n");
+        Assert.assertEquals(expected.toString(), sb.toString());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 David Robertson (freedomdave.org)
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.freedomdave.utils.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TextTableViewTest {
+    private static TextTableGenerator employees() {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new TextTableColumn("NAME"));
+        generator.addColumn(new TextTableColumn("JOB TITLE"));
+        generator.addColumn(new LongColumn("SALARY"));
+        generator.addRow(Arrays.asList("Jane Doe", "CEO", "1200000"));
+        generator.addRow(Arrays.asList("John Doe", "Developer", "51232"));
+        generator.addRow(Arrays.asList("Joe Sellers", "Sales", "9000"));
+        generator.addRow(Arrays.asList("Ann Smith", "Developer", "60000"));
+        return generator;
+    }
+
+    private static int[] tableRows(TextTableView view) {
+        int[] rows = new int[view.getNumRows()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = view.getTableRow(i);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testSortIsNumericAndStable() {
+        TextTableView view = employees().view();
+        Assert.assertArrayEquals(new int[]{2, 1, 3, 0}, tableRows(view.sortBy("SALARY", true)));
+        Assert.assertArrayEquals(new int[]{0, 3, 1, 2}, tableRows(view.sortBy("SALARY", false)));
+        // sorting by name then title orders developers by name
+        Assert.assertArrayEquals(new int[]{0, 3, 1, 2},
+                tableRows(view.sortBy("NAME", true).sortBy("JOB TITLE", true)));
+    }
+
+    @Test
+    public void testFilteredViewRendersOnlySelectedRows() {
+        TextTableView developers = employees().view()
+                .filter("JOB TITLE", "Developer"::equals)
+                .sortBy("SALARY", false);
+        String expected = "+-------------+-------------+----------+\n"
+                + "|    NAME     |  JOB TITLE  |  SALARY  |\n"
+                + "+-------------+-------------+----------+\n"
+                + "|  Ann Smith  |  Developer  |   60000  |\n"
+                + "|  John Doe   |  Developer  |   51232  |\n"
+                + "+-------------+-------------+----------+\n";
+        Assert.assertEquals(expected, developers.generate());
+    }
+
+    @Test
+    public void testHookedViewUsesTableWidths() {
+        TextTableGenerator generator = new TextTableGenerator() {
+            @Override
+            protected String generateRow(int row) {
+                return super.generateRow(row);
+            }
+        };
+        generator.addColumn(new TextTableColumn("VALUE"));
+        generator.addRow(Arrays.asList("a"));
+        generator.addRow(Arrays.asList("a-very-long-value"));
+        String expected = "+---------------------+\n"
+                + "|        VALUE        |\n"
+                + "+---------------------+\n"
+                + "|  a                  |\n"
+                + "+---------------------+\n";
+        Assert.assertEquals(expected, generator.view().filter(row -> row == 0).generate());
+    }
+
+    @Test
+    public void testMissingRowsAreSmallest() {
+        TextTableGenerator generator = employees();
+        generator.getColumnByName("SALARY").setValues(Arrays.asList("1200000", "51232", "9000"));
+        TextTableView view = generator.view();
+        Assert.assertArrayEquals(new int[]{3, 2, 1, 0}, tableRows(view.sortBy("SALARY", true)));
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 3}, tableRows(view.sortBy("SALARY", false)));
+        Assert.assertArrayEquals(new int[]{0, 1}, tableRows(view.topBy("SALARY", 2, false)));
+    }
+
+    @Test
+    public void testTopMatchesSortedPrefix() {
+        TextTableGenerator generator = new TextTableGenerator();
+        generator.addColumn(new LongColumn("VALUE"));
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            generator.addRow(Arrays.asList(Integer.toString(random.nextInt(100))));
+        }
+        TextTableView view = generator.view();
+        for (boolean ascending : new boolean[]{true, false}) {
+            int[] sorted = tableRows(view.sortBy("VALUE", ascending));
+            Assert.assertArrayEquals(Arrays.copyOf(sorted, 25), tableRows(view.topBy("VALUE", 25, ascending)));
+        }
+        Assert.assertEquals(0, view.topBy("VALUE", 0, true).getNumRows());
+        Assert.assertEquals(1000, view.topBy("VALUE", 5000, true).getNumRows());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownColumn() {
+        employees().view().sortBy("MISSING", true);
+    }
+}